@@ -1,8 +1,8 @@
 package com.patrick.corda.doorman.web;
 
-import java.io.ByteArrayOutputStream;
+import static com.patrick.corda.doorman.web.RequestBodyReader.readBody;
+
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.PrintWriter;
 import java.net.HttpURLConnection;
 
@@ -32,6 +32,12 @@ public class CreateNodeCertificate extends HttpServlet {
 	private static final long serialVersionUID = -549055534232599477L;
 	private static final Logger LOGGER = LoggerFactory.getLogger("cordaDoormanLogger");
 
+	/**
+	 * A PKCS#10 request is a few hundred bytes, so anything much larger is refused
+	 * before it is read.
+	 */
+	private static final int MAX_CSR_SIZE = Integer.getInteger("corda.doorman.csr.maxSize", 64 * 1024);
+
 	@Override
 	public void doPost(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
 		LOGGER.info("Receive a new request for creating a certificate.");
@@ -41,14 +47,18 @@ public class CreateNodeCertificate extends HttpServlet {
 	private void execute(HttpServletRequest req, HttpServletResponse resp) {
 		try {
 			createCertificate(req, resp);
+		} catch (RequestBodyTooLargeException e) {
+			LOGGER.error("Exception occurs in CreateNodeCertificate.execute.", e);
+			resp.setStatus(HttpURLConnection.HTTP_ENTITY_TOO_LARGE);
 		} catch (IOException e) {
 			LOGGER.error("Exception occurs in CreateNodeCertificate.execute.", e);
 			resp.setStatus(HttpURLConnection.HTTP_INTERNAL_ERROR);
 		}
 	}
 
-	private void createCertificate(HttpServletRequest req, HttpServletResponse resp) throws IOException {
-		String id = postCSR(streamToBytes(req.getInputStream()));
+	private void createCertificate(HttpServletRequest req, HttpServletResponse resp)
+			throws RequestBodyTooLargeException, IOException {
+		String id = postCSR(readBody(req, MAX_CSR_SIZE));
 		LOGGER.debug("ID is [{}].", id);
 
 		resp.setContentType("text/html;charset=UTF-8");
@@ -61,17 +71,4 @@ public class CreateNodeCertificate extends HttpServlet {
 		PKCS10CertificationRequest csr = new PKCS10CertificationRequest(pkcs10CertificationRequest);
 		return NodeCertificateManager.getInstance().processCSR(csr);
 	}
-
-	private byte[] streamToBytes(InputStream inputStream) throws IOException {
-		byte[] bytes = new byte[1024];
-		int hasRead = -1;
-
-		try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
-			while (0 < (hasRead = inputStream.read(bytes))) {
-				outputStream.write(bytes, 0, hasRead);
-			}
-
-			return outputStream.toByteArray();
-		}
-	}
 }
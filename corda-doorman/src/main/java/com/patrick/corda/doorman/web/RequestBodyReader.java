@@ -0,0 +1,141 @@
+package com.patrick.corda.doorman.web;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Reads request bodies into byte arrays with a size limit. A body of known
+ * length is read straight into an array of exactly that size and a body which
+ * is too large is refused before any of it is read. A chunked body is collected
+ * in pooled buffers and copied once. Reads block the request thread, so the
+ * connector's upload timeout bounds how long a slow client can hold it.
+ *
+ * <p>
+ * The network map and the doorman are separate builds, so each keeps a copy of
+ * this class. The copies are identical apart from their package.
+ * </p>
+ *
+ * @author Patrick Pan
+ *
+ */
+public class RequestBodyReader {
+
+	private static final int CHUNK_SIZE = 16 * 1024;
+
+	/**
+	 * The number of idle chunks kept for reuse.
+	 */
+	private static final int POOL_SIZE = 64;
+
+	private static final BlockingQueue<byte[]> POOL = new ArrayBlockingQueue<>(POOL_SIZE);
+
+	private RequestBodyReader() {
+	}
+
+	/**
+	 * @param req
+	 * @param maxLength the largest body accepted, in bytes
+	 * @return the body
+	 * @throws RequestBodyTooLargeException if the body is longer than "maxLength"
+	 * @throws IOException                  if the body cannot be read or is
+	 *                                      shorter than its "Content-Length"
+	 */
+	public static byte[] readBody(HttpServletRequest req, int maxLength)
+			throws RequestBodyTooLargeException, IOException {
+		return readBody(req.getInputStream(), req.getContentLengthLong(), maxLength);
+	}
+
+	/**
+	 * @param inputStream
+	 * @param contentLength the declared length, or a negative value if unknown
+	 * @param maxLength
+	 * @return
+	 * @throws RequestBodyTooLargeException
+	 * @throws IOException
+	 */
+	static byte[] readBody(InputStream inputStream, long contentLength, int maxLength)
+			throws RequestBodyTooLargeException, IOException {
+		if (contentLength > maxLength) {
+			throw new RequestBodyTooLargeException(String
+					.format("The request body of [%d] bytes is larger than the limit [%d].", contentLength, maxLength));
+		}
+
+		return contentLength < 0 ? readChunkedBody(inputStream, maxLength) : readBody(inputStream, (int) contentLength);
+	}
+
+	private static byte[] readBody(InputStream inputStream, int length) throws IOException {
+		byte[] body = new byte[length];
+		int offset = 0;
+
+		while (offset < length) {
+			int hasRead = inputStream.read(body, offset, length - offset);
+
+			if (hasRead < 0) {
+				throw new EOFException(
+						String.format("The request body ends after [%d] of [%d] bytes.", offset, length));
+			}
+
+			offset += hasRead;
+		}
+
+		return body;
+	}
+
+	private static byte[] readChunkedBody(InputStream inputStream, int maxLength)
+			throws RequestBodyTooLargeException, IOException {
+		List<byte[]> chunks = new ArrayList<>();
+		int length = 0;
+
+		try {
+			while (true) {
+				byte[] chunk = borrow();
+				chunks.add(chunk);
+
+				int offset = 0;
+				int hasRead = 0;
+
+				while (offset < CHUNK_SIZE && (hasRead = inputStream.read(chunk, offset, CHUNK_SIZE - offset)) >= 0) {
+					offset += hasRead;
+				}
+
+				length += offset;
+
+				if (length > maxLength) {
+					throw new RequestBodyTooLargeException(
+							String.format("The request body is larger than the limit [%d].", maxLength));
+				}
+
+				if (hasRead < 0) {
+					return concatenate(chunks, length);
+				}
+			}
+		} finally {
+			chunks.forEach(POOL::offer);
+		}
+	}
+
+	private static byte[] concatenate(List<byte[]> chunks, int length) {
+		byte[] body = new byte[length];
+		int offset = 0;
+
+		for (byte[] chunk : chunks) {
+			int copied = Math.min(CHUNK_SIZE, length - offset);
+			System.arraycopy(chunk, 0, body, offset, copied);
+			offset += copied;
+		}
+
+		return body;
+	}
+
+	private static byte[] borrow() {
+		byte[] chunk = POOL.poll();
+		return chunk == null ? new byte[CHUNK_SIZE] : chunk;
+	}
+}
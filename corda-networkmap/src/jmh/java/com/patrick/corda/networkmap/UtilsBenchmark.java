@@ -0,0 +1,64 @@
+package com.patrick.corda.networkmap;
+
+import java.security.InvalidKeyException;
+import java.security.SignatureException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.patrick.corda.networkmap.core.BenchmarkSupport;
+import com.patrick.corda.networkmap.core.SignedNodeInfoTestUtils;
+
+import net.corda.core.crypto.SecureHash;
+import net.corda.core.internal.SignedDataWithCert;
+import net.corda.nodeapi.internal.network.NetworkMap;
+
+/**
+ * Serializing and signing a network map listing the given number of nodes
+ * with the network map certificate.
+ *
+ * @author Patrick Pan
+ *
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class UtilsBenchmark {
+
+	@Param({ "1000", "10000", "50000" })
+	public int registeredNodes;
+
+	private NetworkMap networkMap;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		BenchmarkSupport.useTemporaryStorage();
+
+		/**
+		 * Initialises the certificates and the serialization environment.
+		 */
+		SignedNodeInfoTestUtils.newKeyPair();
+
+		List<SecureHash> nodeInfoHashes = IntStream.range(0, registeredNodes)
+				.mapToObj(i -> SecureHash.randomSHA256()).collect(Collectors.toList());
+		networkMap = new NetworkMap(nodeInfoHashes, SecureHash.randomSHA256(), null);
+	}
+
+	@Benchmark
+	public SignedDataWithCert<NetworkMap> signData() throws InvalidKeyException, SignatureException {
+		return Utils.signData(networkMap);
+	}
+}
@@ -0,0 +1,81 @@
+package com.patrick.corda.networkmap.core;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.security.InvalidKeyException;
+import java.security.SignatureException;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import net.corda.core.identity.CordaX500Name;
+import net.corda.nodeapi.internal.SignedNodeInfo;
+
+/**
+ * Shared set-up of the benchmarks. Every benchmark runs in a forked JVM of its
+ * own, which gets an empty storage directory so nothing is restored from an
+ * earlier fork.
+ *
+ * @author Patrick Pan
+ *
+ */
+public class BenchmarkSupport {
+
+	private BenchmarkSupport() {
+	}
+
+	/**
+	 * Must be called before any class reading the storage directory is
+	 * initialised.
+	 */
+	public static void useTemporaryStorage() {
+		try {
+			System.setProperty("corda.networkmap.storage.dir",
+					Files.createTempDirectory("networkmap-benchmark").toString());
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Nodes are built concurrently since creating their certificates costs far
+	 * more than anything measured.
+	 *
+	 * @param prefix makes the names distinct from those of other calls
+	 * @param count
+	 * @return signed "NodeInfo" objects chained to "certificates/root.jks"
+	 */
+	public static List<SignedNodeInfo> createSignedNodeInfos(String prefix, int count) {
+		return IntStream.range(0, count).parallel()
+				.mapToObj(i -> createSignedNodeInfo(new CordaX500Name(prefix + " " + i, "London", "GB")))
+				.collect(Collectors.toList());
+	}
+
+	private static SignedNodeInfo createSignedNodeInfo(CordaX500Name name) {
+		try {
+			return SignedNodeInfoTestUtils.createSignedNodeInfo(name);
+		} catch (InvalidKeyException | SignatureException e) {
+			throw new IllegalStateException("This exception should not occur.", e);
+		}
+	}
+
+	/**
+	 * Registers the nodes and waits until the network map lists them.
+	 *
+	 * @param signedNodeInfos
+	 */
+	public static void register(List<SignedNodeInfo> signedNodeInfos) {
+		NodeInfoHashManager nodeInfoHashManager = NodeInfoHashManager.getInstance();
+
+		signedNodeInfos.parallelStream().forEach(signedNodeInfo -> {
+			try {
+				nodeInfoHashManager.addNode(signedNodeInfo);
+			} catch (DuplicateCordaX500NameException | IOException e) {
+				throw new IllegalStateException("This exception should not occur.", e);
+			}
+		});
+
+		NetworkMapRefreshScheduler.getInstance().flush();
+	}
+}
@@ -0,0 +1,45 @@
+package com.patrick.corda.networkmap.core;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Building, signing, serializing and storing the network map.
+ *
+ * @author Patrick Pan
+ *
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = "-Dcorda.networkmap.storage.sync=false")
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class NetworkMapManagerBenchmark {
+
+	@Param({ "1000", "10000", "50000" })
+	public int registeredNodes;
+
+	private NetworkMapManager networkMapManager;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		BenchmarkSupport.useTemporaryStorage();
+		BenchmarkSupport.register(BenchmarkSupport.createSignedNodeInfos("Registered Node", registeredNodes));
+
+		networkMapManager = NetworkMapManager.getInstance();
+	}
+
+	@Benchmark
+	public void refreshNetworkMap() {
+		networkMapManager.refreshNetworkMap();
+	}
+}
@@ -0,0 +1,74 @@
+package com.patrick.corda.networkmap.core;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.corda.core.crypto.SecureHash;
+import net.corda.nodeapi.internal.SignedNodeInfo;
+
+/**
+ * Publishing and listing nodes while the given number of nodes is registered.
+ * The store does not force appends to the disk, so that the numbers do not
+ * depend on the storage device.
+ *
+ * @author Patrick Pan
+ *
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = "-Dcorda.networkmap.storage.sync=false")
+public class NodeInfoHashManagerBenchmark {
+
+	private static final int WARMUP_ITERATIONS = 2;
+	private static final int MEASUREMENT_ITERATIONS = 5;
+	private static final int BATCH_SIZE = 200;
+
+	@Param({ "1000", "10000", "50000" })
+	public int registeredNodes;
+
+	private NodeInfoHashManager nodeInfoHashManager;
+
+	/**
+	 * Every call of "addNode" publishes another node.
+	 */
+	private List<SignedNodeInfo> publishedNodes;
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		BenchmarkSupport.useTemporaryStorage();
+		BenchmarkSupport.register(BenchmarkSupport.createSignedNodeInfos("Registered Node", registeredNodes));
+
+		nodeInfoHashManager = NodeInfoHashManager.getInstance();
+		publishedNodes = BenchmarkSupport.createSignedNodeInfos("Published Node",
+				(WARMUP_ITERATIONS + MEASUREMENT_ITERATIONS) * BATCH_SIZE);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@Warmup(iterations = WARMUP_ITERATIONS, batchSize = BATCH_SIZE)
+	@Measurement(iterations = MEASUREMENT_ITERATIONS, batchSize = BATCH_SIZE)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public void addNode() throws Exception {
+		nodeInfoHashManager.addNode(publishedNodes.get(next++));
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public List<SecureHash> getSignedNodeInfoHashList() {
+		return nodeInfoHashManager.getSignedNodeInfoHashList();
+	}
+}
@@ -0,0 +1,54 @@
+package com.patrick.corda.networkmap.core;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import net.corda.core.identity.CordaX500Name;
+import net.corda.nodeapi.internal.SignedNodeInfo;
+
+/**
+ * Serializing and deserializing one "SignedNodeInfo", as done for every
+ * publication.
+ *
+ * @author Patrick Pan
+ *
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SerializationBenchmark {
+
+	private SerializationEnvironmentManager serializationEnvironmentManager;
+	private SignedNodeInfo signedNodeInfo;
+	private byte[] signedNodeInfoByteArray;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		BenchmarkSupport.useTemporaryStorage();
+
+		signedNodeInfo = SignedNodeInfoTestUtils.createSignedNodeInfo(new CordaX500Name("Party", "London", "GB"));
+		serializationEnvironmentManager = SerializationEnvironmentManager.getInstance();
+		signedNodeInfoByteArray = serializationEnvironmentManager.serializeObjectOnContext(signedNodeInfo).getBytes();
+	}
+
+	@Benchmark
+	public byte[] serializeSignedNodeInfo() {
+		return serializationEnvironmentManager.serializeObjectOnContext(signedNodeInfo).getBytes();
+	}
+
+	@Benchmark
+	public SignedNodeInfo deserializeSignedNodeInfo() {
+		return serializationEnvironmentManager.deserializeObjectOnContext(SignedNodeInfo.class,
+				signedNodeInfoByteArray);
+	}
+}
@@ -0,0 +1,126 @@
+package com.patrick.corda.networkmap.load;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.servlet.Filter;
+import javax.servlet.Servlet;
+import javax.servlet.annotation.WebFilter;
+import javax.servlet.annotation.WebServlet;
+
+import org.apache.catalina.Context;
+import org.apache.catalina.LifecycleException;
+import org.apache.catalina.Wrapper;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.tomcat.util.descriptor.web.FilterDef;
+import org.apache.tomcat.util.descriptor.web.FilterMap;
+
+import com.patrick.corda.networkmap.web.AckNetworkParameters;
+import com.patrick.corda.networkmap.web.GetMetrics;
+import com.patrick.corda.networkmap.web.GetNetworkMap;
+import com.patrick.corda.networkmap.web.GetNetworkMapDelta;
+import com.patrick.corda.networkmap.web.GetNetworkParameters;
+import com.patrick.corda.networkmap.web.GetNetworkParametersAckStatus;
+import com.patrick.corda.networkmap.web.GetNodeInfo;
+import com.patrick.corda.networkmap.web.GetNodeInfos;
+import com.patrick.corda.networkmap.web.GetPublishQueueStatus;
+import com.patrick.corda.networkmap.web.NetworkMapServletContextListener;
+import com.patrick.corda.networkmap.web.PollNetworkMap;
+import com.patrick.corda.networkmap.web.PublishNodeInfo;
+import com.patrick.corda.networkmap.web.RequestMetricsFilter;
+
+/**
+ * Runs the network map servlets in an embedded Tomcat. Servlets and filters
+ * are mapped as their "WebServlet" and "WebFilter" annotations say, the same
+ * way the WAR is deployed.
+ *
+ * @author Patrick Pan
+ *
+ */
+public class EmbeddedNetworkMapServer {
+
+	private static final List<Class<? extends Servlet>> SERVLETS = Arrays.asList(AckNetworkParameters.class,
+			GetMetrics.class, GetNetworkMap.class, GetNetworkMapDelta.class, GetNetworkParameters.class,
+			GetNetworkParametersAckStatus.class, GetNodeInfo.class, GetNodeInfos.class, GetPublishQueueStatus.class,
+			PollNetworkMap.class, PublishNodeInfo.class);
+
+	private static final List<Class<? extends Filter>> FILTERS = Arrays.asList(RequestMetricsFilter.class);
+
+	private final Tomcat tomcat = new Tomcat();
+
+	/**
+	 * @param port       0 for any free port
+	 * @param baseDir    the working directory of Tomcat
+	 * @throws LifecycleException
+	 */
+	public EmbeddedNetworkMapServer(int port, File baseDir) throws LifecycleException {
+		tomcat.setBaseDir(baseDir.getAbsolutePath());
+		tomcat.setPort(port);
+		tomcat.getConnector();
+
+		Context context = tomcat.addContext("", baseDir.getAbsolutePath());
+		context.addApplicationListener(NetworkMapServletContextListener.class.getName());
+
+		for (Class<? extends Servlet> servletClass : SERVLETS) {
+			addServlet(context, servletClass);
+		}
+
+		for (Class<? extends Filter> filterClass : FILTERS) {
+			addFilter(context, filterClass);
+		}
+	}
+
+	private void addFilter(Context context, Class<? extends Filter> filterClass) {
+		WebFilter webFilter = filterClass.getAnnotation(WebFilter.class);
+		String name = filterClass.getSimpleName();
+
+		FilterDef filterDef = new FilterDef();
+		filterDef.setFilterName(name);
+		filterDef.setFilterClass(filterClass.getName());
+		filterDef.setAsyncSupported(String.valueOf(webFilter.asyncSupported()));
+		context.addFilterDef(filterDef);
+
+		FilterMap filterMap = new FilterMap();
+		filterMap.setFilterName(name);
+
+		for (String urlPattern : webFilter.value()) {
+			filterMap.addURLPattern(urlPattern);
+		}
+
+		for (String urlPattern : webFilter.urlPatterns()) {
+			filterMap.addURLPattern(urlPattern);
+		}
+
+		context.addFilterMap(filterMap);
+	}
+
+	private void addServlet(Context context, Class<? extends Servlet> servletClass) {
+		WebServlet webServlet = servletClass.getAnnotation(WebServlet.class);
+		String name = servletClass.getSimpleName();
+
+		Wrapper wrapper = Tomcat.addServlet(context, name, servletClass.getName());
+		wrapper.setAsyncSupported(webServlet.asyncSupported());
+
+		for (String urlPattern : webServlet.value()) {
+			context.addServletMappingDecoded(urlPattern, name);
+		}
+
+		for (String urlPattern : webServlet.urlPatterns()) {
+			context.addServletMappingDecoded(urlPattern, name);
+		}
+	}
+
+	public void start() throws LifecycleException {
+		tomcat.start();
+	}
+
+	public int getPort() {
+		return tomcat.getConnector().getLocalPort();
+	}
+
+	public void stop() throws LifecycleException {
+		tomcat.stop();
+		tomcat.destroy();
+	}
+}
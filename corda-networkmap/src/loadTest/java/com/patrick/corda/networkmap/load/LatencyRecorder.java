@@ -0,0 +1,64 @@
+package com.patrick.corda.networkmap.load;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects the latencies of one endpoint. Room for every expected request is
+ * allocated up front, so recording never allocates or locks. Latencies beyond
+ * the capacity are counted but not kept.
+ *
+ * @author Patrick Pan
+ *
+ */
+public class LatencyRecorder {
+
+	private final String endpoint;
+	private final long[] latencyNanos;
+	private final AtomicInteger recorded = new AtomicInteger();
+	private final AtomicLong errors = new AtomicLong();
+
+	public LatencyRecorder(String endpoint, int capacity) {
+		this.endpoint = endpoint;
+		this.latencyNanos = new long[capacity];
+	}
+
+	public void record(long nanos) {
+		int index = recorded.getAndIncrement();
+
+		if (index < latencyNanos.length) {
+			latencyNanos[index] = nanos;
+		}
+	}
+
+	public void recordError() {
+		errors.incrementAndGet();
+	}
+
+	/**
+	 * Must only be called once all requests have completed.
+	 *
+	 * @param elapsedNanos the duration of the run
+	 * @return the result as a JSON object
+	 */
+	public String toJson(long elapsedNanos) {
+		int count = recorded.get();
+		long[] sorted = Arrays.copyOf(latencyNanos, Math.min(count, latencyNanos.length));
+		Arrays.sort(sorted);
+
+		return String.format(
+				"\"%s\": {\"requests\": %d, \"errors\": %d, \"throughput\": %.1f, \"p50Millis\": %.3f, \"p99Millis\": %.3f, \"p999Millis\": %.3f}",
+				endpoint, count, errors.get(), count * 1e9 / elapsedNanos, percentile(sorted, 0.5),
+				percentile(sorted, 0.99), percentile(sorted, 0.999));
+	}
+
+	private static double percentile(long[] sorted, double quantile) {
+		if (sorted.length == 0) {
+			return 0;
+		}
+
+		int index = (int) Math.ceil(quantile * sorted.length) - 1;
+		return sorted[Math.max(0, index)] / 1e6;
+	}
+}
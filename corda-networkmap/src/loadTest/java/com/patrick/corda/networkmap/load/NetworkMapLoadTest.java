@@ -0,0 +1,371 @@
+package com.patrick.corda.networkmap.load;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.InvalidKeyException;
+import java.security.SignatureException;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import com.patrick.corda.networkmap.core.SerializationEnvironmentManager;
+import com.patrick.corda.networkmap.core.SignedNodeInfoTestUtils;
+
+import net.corda.core.identity.CordaX500Name;
+import net.corda.nodeapi.internal.SignedNodeInfo;
+
+/**
+ * Simulates a fleet of nodes against the network map servlets running in an
+ * embedded Tomcat. Part of the nodes registers first, then nodes publish, poll
+ * the network map and fetch node infos at fixed rates for a while. The run
+ * fails if any of the nodes registering first is never accepted.
+ *
+ * <p>
+ * Requests are sent at their scheduled time whether or not earlier ones have
+ * completed, and latency is measured from that time, so a slow server shows up
+ * in the latency rather than in a lower request rate. Throughput and the 50th,
+ * 99th and 99.9th percentile latency of every endpoint are written as JSON.
+ * </p>
+ *
+ * <p>
+ * Every setting is a system property prefixed with
+ * "corda.networkmap.loadtest.", e.g. "-Pcorda.networkmap.loadtest.nodes=5000"
+ * with "./gradlew loadTest". Rates are requests per second.
+ * </p>
+ *
+ * @author Patrick Pan
+ *
+ */
+public class NetworkMapLoadTest {
+
+	private static final String PREFIX = "corda.networkmap.loadtest.";
+
+	private static final int NODES = Integer.getInteger(PREFIX + "nodes", 2000);
+	private static final int REGISTERED_NODES = Integer.getInteger(PREFIX + "registeredNodes", NODES / 2);
+	private static final int DURATION_SECONDS = Integer.getInteger(PREFIX + "duration", 60);
+	private static final int PUBLISH_RATE = Integer.getInteger(PREFIX + "publishRate", 50);
+	private static final int POLL_RATE = Integer.getInteger(PREFIX + "pollRate", 200);
+	private static final int FETCH_RATE = Integer.getInteger(PREFIX + "fetchRate", 200);
+	private static final int CLIENT_THREADS = Integer.getInteger(PREFIX + "clientThreads", 64);
+	private static final int PORT = Integer.getInteger(PREFIX + "port", 0);
+	private static final int REGISTER_ATTEMPTS = Integer.getInteger(PREFIX + "registerAttempts", 10);
+	private static final long MAX_RETRY_AFTER_MILLIS = Long.getLong(PREFIX + "maxRetryAfter", 30000L);
+	private static final String RESULT_FILE = System.getProperty(PREFIX + "resultFile", "loadtest-results.json");
+
+	private static final String RETRY_AFTER = "Retry-After";
+	private static final long DEFAULT_RETRY_AFTER_MILLIS = 1000L;
+
+	private final String baseUrl;
+	private final List<SimulatedNode> nodes;
+
+	private final ExecutorService clients = Executors.newFixedThreadPool(CLIENT_THREADS);
+	private final AtomicInteger nextPublishedNode = new AtomicInteger(REGISTERED_NODES);
+
+	/**
+	 * The entity tag of the latest network map seen, sent back like a node does.
+	 */
+	private volatile String networkMapETag;
+
+	private NetworkMapLoadTest(String baseUrl, List<SimulatedNode> nodes) {
+		this.baseUrl = baseUrl;
+		this.nodes = nodes;
+	}
+
+	public static void main(String[] args) throws Exception {
+		File workDirectory = Files.createTempDirectory("networkmap-loadtest").toFile();
+
+		if (System.getProperty("corda.networkmap.storage.dir") == null) {
+			System.setProperty("corda.networkmap.storage.dir", new File(workDirectory, "storage").getPath());
+		}
+
+		EmbeddedNetworkMapServer server = new EmbeddedNetworkMapServer(PORT, new File(workDirectory, "tomcat"));
+		server.start();
+		int exitStatus = 0;
+
+		try {
+			List<SimulatedNode> nodes = createNodes(NODES);
+			NetworkMapLoadTest loadTest = new NetworkMapLoadTest("http://localhost:" + server.getPort(), nodes);
+
+			int unregistered = loadTest.register();
+
+			if (unregistered > 0) {
+				System.err.println(String.format("[%d] of [%d] nodes could not register.", unregistered,
+						REGISTERED_NODES));
+				exitStatus = 1;
+			} else {
+				String result = loadTest.run();
+
+				System.out.println(result);
+				Files.write(new File(RESULT_FILE).toPath(), result.getBytes(StandardCharsets.UTF_8));
+			}
+		} finally {
+			server.stop();
+		}
+
+		System.exit(exitStatus);
+	}
+
+	/**
+	 * Nodes are built concurrently since their certificates take a while.
+	 */
+	private static List<SimulatedNode> createNodes(int count) {
+		return IntStream.range(0, count).parallel()
+				.mapToObj(i -> new SimulatedNode(new CordaX500Name("Load Test Node " + i, "London", "GB")))
+				.collect(Collectors.toList());
+	}
+
+	/**
+	 * Publishes the nodes which are already registered when the run starts.
+	 *
+	 * @return the number of nodes which could not register
+	 */
+	private int register() throws InterruptedException {
+		CountDownLatch registered = new CountDownLatch(REGISTERED_NODES);
+		AtomicInteger unregistered = new AtomicInteger();
+
+		for (int i = 0; i < REGISTERED_NODES; i++) {
+			SimulatedNode node = nodes.get(i);
+			clients.execute(() -> {
+				try {
+					if (!register(node)) {
+						unregistered.incrementAndGet();
+					}
+				} catch (InterruptedException e) {
+					unregistered.incrementAndGet();
+					Thread.currentThread().interrupt();
+				} finally {
+					registered.countDown();
+				}
+			});
+		}
+
+		registered.await();
+		return unregistered.get();
+	}
+
+	/**
+	 * Publishes the node like a node does, waiting as long as the network map asks
+	 * while it is too busy, up to a number of attempts.
+	 *
+	 * @return false if the node is still not accepted after the last attempt
+	 */
+	private boolean register(SimulatedNode node) throws InterruptedException {
+		for (int attempt = 1;; attempt++) {
+			Response response = send(null, 0, "POST", "/network-map/publish", node.signedNodeInfoByteArray, null);
+
+			if (response.status == HttpURLConnection.HTTP_OK) {
+				return true;
+			}
+
+			boolean retryable = response.status == HttpURLConnection.HTTP_UNAVAILABLE || response.status < 0;
+
+			if (!retryable || attempt >= REGISTER_ATTEMPTS) {
+				System.err.println(String.format("[%s] could not register after [%d] attempts, the last status is [%d].",
+						node.name, attempt, response.status));
+				return false;
+			}
+
+			TimeUnit.MILLISECONDS.sleep(Math.min(MAX_RETRY_AFTER_MILLIS, response.retryAfterMillis));
+		}
+	}
+
+	private String run() throws InterruptedException {
+		long durationNanos = TimeUnit.SECONDS.toNanos(DURATION_SECONDS);
+		LatencyRecorder publishRecorder = new LatencyRecorder("publish", capacity(PUBLISH_RATE));
+		LatencyRecorder pollRecorder = new LatencyRecorder("poll", capacity(POLL_RATE));
+		LatencyRecorder fetchRecorder = new LatencyRecorder("fetch", capacity(FETCH_RATE));
+
+		ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(3);
+		long start = System.nanoTime();
+
+		schedule(scheduler, PUBLISH_RATE, scheduledNanos -> publish(nextPublishedNode(), publishRecorder,
+				scheduledNanos));
+		schedule(scheduler, POLL_RATE, scheduledNanos -> poll(pollRecorder, scheduledNanos));
+		schedule(scheduler, FETCH_RATE, scheduledNanos -> fetch(fetchRecorder, scheduledNanos));
+
+		TimeUnit.NANOSECONDS.sleep(durationNanos);
+		scheduler.shutdownNow();
+		clients.shutdown();
+
+		if (!clients.awaitTermination(1, TimeUnit.MINUTES)) {
+			System.err.println("Some requests have not completed within a minute after the run.");
+		}
+
+		long elapsedNanos = System.nanoTime() - start;
+
+		return String.format("{%n  \"nodes\": %d,%n  \"registeredNodes\": %d,%n  \"durationSeconds\": %d,%n"
+				+ "  \"endpoints\": {%n    %s,%n    %s,%n    %s%n  }%n}", NODES, REGISTERED_NODES, DURATION_SECONDS,
+				publishRecorder.toJson(elapsedNanos), pollRecorder.toJson(elapsedNanos),
+				fetchRecorder.toJson(elapsedNanos));
+	}
+
+	private static int capacity(int rate) {
+		return rate * DURATION_SECONDS * 2 + 1;
+	}
+
+	private void schedule(ScheduledExecutorService scheduler, int rate, ScheduledRequest request) {
+		if (rate <= 0) {
+			return;
+		}
+
+		scheduler.scheduleAtFixedRate(() -> {
+			long scheduledNanos = System.nanoTime();
+			clients.execute(() -> request.send(scheduledNanos));
+		}, 0, TimeUnit.SECONDS.toNanos(1) / rate, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Nodes not registered beforehand are published in turn, and published again
+	 * once all of them have been.
+	 */
+	private SimulatedNode nextPublishedNode() {
+		int index = nextPublishedNode.getAndIncrement();
+		int unregistered = NODES - REGISTERED_NODES;
+		return unregistered > 0 ? nodes.get(REGISTERED_NODES + (index - REGISTERED_NODES) % unregistered)
+				: nodes.get(index % NODES);
+	}
+
+	private void publish(SimulatedNode node, LatencyRecorder recorder, long scheduledNanos) {
+		send(recorder, scheduledNanos, "POST", "/network-map/publish", node.signedNodeInfoByteArray, null);
+	}
+
+	private void poll(LatencyRecorder recorder, long scheduledNanos) {
+		send(recorder, scheduledNanos, "GET", "/network-map", null, networkMapETag);
+	}
+
+	private void fetch(LatencyRecorder recorder, long scheduledNanos) {
+		SimulatedNode node = nodes.get(ThreadLocalRandom.current().nextInt(Math.max(1, REGISTERED_NODES)));
+		send(recorder, scheduledNanos, "GET", "/network-map/node-info/" + node.hash, null, null);
+	}
+
+	/**
+	 * @param recorder       null if nothing is recorded
+	 * @param scheduledNanos when the request should have been sent
+	 * @return the status, -1 if the request failed, and how long to wait before
+	 *         retrying
+	 */
+	private Response send(LatencyRecorder recorder, long scheduledNanos, String method, String path, byte[] body,
+			String ifNoneMatch) {
+		try {
+			HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+			connection.setRequestMethod(method);
+
+			if (ifNoneMatch != null) {
+				connection.setRequestProperty("If-None-Match", ifNoneMatch);
+			}
+
+			if (body != null) {
+				connection.setDoOutput(true);
+				connection.setFixedLengthStreamingMode(body.length);
+
+				try (OutputStream outputStream = connection.getOutputStream()) {
+					outputStream.write(body);
+				}
+			}
+
+			int status = connection.getResponseCode();
+			drain(status < HttpURLConnection.HTTP_BAD_REQUEST ? connection.getInputStream()
+					: connection.getErrorStream());
+
+			if ("/network-map".equals(path) && connection.getHeaderField("ETag") != null) {
+				networkMapETag = connection.getHeaderField("ETag");
+			}
+
+			if (recorder != null) {
+				if (status == HttpURLConnection.HTTP_OK || status == HttpURLConnection.HTTP_NOT_MODIFIED) {
+					recorder.record(System.nanoTime() - scheduledNanos);
+				} else {
+					recorder.recordError();
+				}
+			}
+
+			return new Response(status, parseRetryAfter(connection.getHeaderField(RETRY_AFTER)));
+		} catch (IOException e) {
+			if (recorder != null) {
+				recorder.recordError();
+			}
+
+			return new Response(-1, DEFAULT_RETRY_AFTER_MILLIS);
+		}
+	}
+
+	/**
+	 * Only the number of seconds is supported, which is what the network map
+	 * sends.
+	 */
+	private static long parseRetryAfter(String retryAfter) {
+		if (retryAfter == null) {
+			return DEFAULT_RETRY_AFTER_MILLIS;
+		}
+
+		try {
+			return TimeUnit.SECONDS.toMillis(Math.max(0, Long.parseLong(retryAfter.trim())));
+		} catch (NumberFormatException e) {
+			return DEFAULT_RETRY_AFTER_MILLIS;
+		}
+	}
+
+	/**
+	 * Reads the whole response so that the connection can be kept alive.
+	 */
+	private static void drain(InputStream inputStream) throws IOException {
+		if (inputStream == null) {
+			return;
+		}
+
+		try (InputStream stream = inputStream) {
+			byte[] buffer = new byte[8192];
+
+			while (stream.read(buffer) >= 0) {
+				// Discarded.
+			}
+		}
+	}
+
+	@FunctionalInterface
+	private interface ScheduledRequest {
+		void send(long scheduledNanos);
+	}
+
+	private static class Response {
+		private final int status;
+		private final long retryAfterMillis;
+
+		private Response(int status, long retryAfterMillis) {
+			this.status = status;
+			this.retryAfterMillis = retryAfterMillis;
+		}
+	}
+
+	private static class SimulatedNode {
+		private final CordaX500Name name;
+		private final byte[] signedNodeInfoByteArray;
+		private final String hash;
+
+		private SimulatedNode(CordaX500Name name) {
+			this.name = name;
+
+			try {
+				SignedNodeInfo signedNodeInfo = SignedNodeInfoTestUtils.createSignedNodeInfo(name);
+				this.signedNodeInfoByteArray = SerializationEnvironmentManager.getInstance()
+						.serializeObjectOnContext(signedNodeInfo).getBytes();
+				this.hash = signedNodeInfo.getRaw().getHash().toString();
+			} catch (InvalidKeyException | SignatureException e) {
+				throw new IllegalStateException("This exception should not occur.", e);
+			}
+		}
+	}
+}
@@ -6,6 +6,7 @@ import java.security.PrivateKey;
 import java.security.SignatureException;
 import java.security.cert.X509Certificate;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.slf4j.Logger;
@@ -13,6 +14,7 @@ import org.slf4j.LoggerFactory;
 
 import com.patrick.corda.networkmap.core.NetworkMapCertificateManager;
 import com.patrick.corda.networkmap.core.SerializationEnvironmentManager;
+import com.patrick.corda.networkmap.core.SignedArtifact;
 
 import io.netty.handler.codec.http.HttpHeaderValues;
 import net.corda.core.crypto.Crypto;
@@ -31,6 +33,13 @@ public class Utils {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger("cordaNetworkMapLogger");
 	private static final String CACHE_CONTROL_VALUE = String.format("public, max-age=%s", 10);
+	private static final String CACHE_CONTROL = "Cache-Control";
+	private static final String ETAG = "ETag";
+	private static final String IF_NONE_MATCH = "If-None-Match";
+	private static final String WEAK_ETAG_PREFIX = "W/";
+	private static final String ACCEPT_ENCODING = "Accept-Encoding";
+	private static final String CONTENT_ENCODING = "Content-Encoding";
+	private static final String VARY = "Vary";
 
 	private Utils() {
 	}
@@ -45,16 +54,177 @@ public class Utils {
 		return new SignedDataWithCert<>(serialised, new DigitalSignatureWithCert(certificate, signature));
 	}
 
+	/**
+	 * Headers must be set before the body is written because the response may be
+	 * committed as soon as the buffer fills up.
+	 * 
+	 * @param resp
+	 * @param byteArray
+	 * @throws IOException
+	 */
 	public static void writeByteArrayToResponse(HttpServletResponse resp, byte[] byteArray) throws IOException {
-		resp.getOutputStream().write(byteArray);
 		resp.setContentType(HttpHeaderValues.APPLICATION_OCTET_STREAM.toString());
-		resp.addHeader("Cache-Control", CACHE_CONTROL_VALUE);
+		resp.setContentLength(byteArray.length);
+		addDefaultCacheControl(resp);
+		resp.getOutputStream().write(byteArray);
+	}
+
+	/**
+	 * Answers "304 Not Modified" without a body if the client already holds the
+	 * current version of the artifact. Otherwise the precompressed variant the
+	 * client accepts is sent if there is one.
+	 * 
+	 * @param req
+	 * @param resp
+	 * @param signedArtifact
+	 * @throws IOException
+	 */
+	public static void writeSignedArtifactToResponse(HttpServletRequest req, HttpServletResponse resp,
+			SignedArtifact signedArtifact) throws IOException {
+		String encoding = selectEncoding(req.getHeader(ACCEPT_ENCODING), signedArtifact);
+		String eTag = encoding == null ? signedArtifact.getETag() : signedArtifact.getEncodedETag(encoding);
+
+		resp.addHeader(VARY, ACCEPT_ENCODING);
+		resp.setHeader(ETAG, eTag);
+
+		if (isNotModified(req.getHeader(IF_NONE_MATCH), eTag)) {
+			addDefaultCacheControl(resp);
+			resp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+			return;
+		}
+
+		if (encoding == null) {
+			writeByteArrayToResponse(resp, signedArtifact.getByteArray());
+		} else {
+			resp.setHeader(CONTENT_ENCODING, encoding);
+			writeByteArrayToResponse(resp, signedArtifact.getEncodedByteArray(encoding));
+		}
+	}
+
+	/**
+	 * Whether the entity tag the client sent in "If-None-Match" is the one of the
+	 * representation it would be served now.
+	 * 
+	 * @param req
+	 * @param signedArtifact
+	 * @return
+	 */
+	public static boolean isNotModified(HttpServletRequest req, SignedArtifact signedArtifact) {
+		String encoding = selectEncoding(req.getHeader(ACCEPT_ENCODING), signedArtifact);
+		String eTag = encoding == null ? signedArtifact.getETag() : signedArtifact.getEncodedETag(encoding);
+		return isNotModified(req.getHeader(IF_NONE_MATCH), eTag);
+	}
+
+	/**
+	 * Servlets which must not be cached for the default period set their own
+	 * "Cache-Control" before writing the response.
+	 * 
+	 * @param resp
+	 */
+	private static void addDefaultCacheControl(HttpServletResponse resp) {
+		if (!resp.containsHeader(CACHE_CONTROL)) {
+			resp.addHeader(CACHE_CONTROL, CACHE_CONTROL_VALUE);
+		}
+	}
+
+	/**
+	 * @see RFC 7231, section 5.3.4
+	 * 
+	 * @param acceptEncoding
+	 * @param signedArtifact
+	 * @return the preferred content coding of the artifact which is acceptable to
+	 *         the client or null for the uncompressed bytes
+	 */
+	private static String selectEncoding(String acceptEncoding, SignedArtifact signedArtifact) {
+		if (acceptEncoding == null) {
+			return null;
+		}
+
+		for (String encoding : signedArtifact.getEncodings()) {
+			if (isAcceptable(acceptEncoding, encoding)) {
+				return encoding;
+			}
+		}
+
+		return null;
+	}
+
+	private static boolean isAcceptable(String acceptEncoding, String encoding) {
+		boolean acceptable = false;
+
+		for (String codingAndWeight : acceptEncoding.split(",")) {
+			String[] parts = codingAndWeight.split(";");
+			String coding = parts[0].trim();
+
+			if (coding.equalsIgnoreCase(encoding)) {
+				return !hasZeroWeight(parts);
+			}
+
+			if ("*".equals(coding)) {
+				acceptable = !hasZeroWeight(parts);
+			}
+		}
+
+		return acceptable;
+	}
+
+	private static boolean hasZeroWeight(String[] parts) {
+		for (int i = 1; i < parts.length; i++) {
+			String parameter = parts[i].trim();
+
+			if (parameter.startsWith("q=")) {
+				try {
+					return Double.parseDouble(parameter.substring(2)) <= 0;
+				} catch (NumberFormatException e) {
+					LOGGER.debug("Invalid weight [{}].", parameter);
+					return true;
+				}
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * @see RFC 7232, section 3.2
+	 * 
+	 * @param ifNoneMatch
+	 * @param eTag
+	 * @return
+	 */
+	private static boolean isNotModified(String ifNoneMatch, String eTag) {
+		if (ifNoneMatch == null) {
+			return false;
+		}
+
+		for (String candidate : ifNoneMatch.split(",")) {
+			String trimmed = candidate.trim();
+
+			if (trimmed.startsWith(WEAK_ETAG_PREFIX)) {
+				trimmed = trimmed.substring(WEAK_ETAG_PREFIX.length());
+			}
+
+			if ("*".equals(trimmed) || eTag.equals(trimmed)) {
+				return true;
+			}
+		}
+
+		return false;
 	}
 
 	public static String getHashString(String url) {
+		return getHash(url).toString();
+	}
+
+	/**
+	 * @param url
+	 * @return the hash the last path segment of the URL names
+	 * @throws IllegalArgumentException if the last path segment is not a hash
+	 */
+	public static SecureHash getHash(String url) {
 		int index = url.lastIndexOf('/');
 		String raw = url.substring(index + 1);
 		LOGGER.debug("The hash string is [{}].", raw);
-		return SecureHash.parse(raw).toString();
+		return SecureHash.parse(raw);
 	}
 }
@@ -0,0 +1,251 @@
+package com.patrick.corda.networkmap.core;
+
+import java.security.GeneralSecurityException;
+import java.security.cert.CertPath;
+import java.security.cert.CertPathValidator;
+import java.security.cert.CertificateFactory;
+import java.security.cert.PKIXParameters;
+import java.security.cert.TrustAnchor;
+import java.security.cert.X509Certificate;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.corda.core.crypto.SecureHash;
+
+/**
+ * Validates certificate paths against the root certificate in the same way as
+ * "X509Utilities.validateCertPath", without building a new PKIX validator and
+ * parameters for every path. The certificate issued by the root, typically the
+ * doorman certificate, is remembered once a path through it has been validated
+ * against the root. Later paths issued by it are only validated up to it until
+ * it expires. Node certificate paths end with the root itself, which is left
+ * out since it is the trust anchor.
+ *
+ * @author Patrick Pan
+ *
+ */
+public class CertificatePathValidator {
+
+	/**
+	 * How long in milliseconds a validated intermediate certificate is trusted
+	 * before it is validated against the root again.
+	 */
+	private static final long CACHE_TTL_MILLIS = Long.getLong("corda.networkmap.certificates.cacheTtl", 3600000L);
+
+	/**
+	 * The maximum number of intermediate certificates remembered.
+	 */
+	private static final int CACHE_SIZE = Integer.getInteger("corda.networkmap.certificates.cacheSize", 1000);
+
+	private static final String NAME_CONSTRAINTS_OID = "2.5.29.30";
+
+	private static final int KEY_CERT_SIGN = 5;
+
+	/**
+	 * Neither of them is documented as thread safe.
+	 */
+	private static final ThreadLocal<CertPathValidator> VALIDATOR = ThreadLocal
+			.withInitial(() -> newInstance(() -> CertPathValidator.getInstance("PKIX")));
+	private static final ThreadLocal<CertificateFactory> CERTIFICATE_FACTORY = ThreadLocal
+			.withInitial(() -> newInstance(() -> CertificateFactory.getInstance("X.509")));
+
+	private final X509Certificate rootCertificate;
+
+	/**
+	 * Only read once built, which is safe to share between threads.
+	 */
+	private final PKIXParameters rootParameters;
+
+	private final ConcurrentMap<String, TrustedIntermediate> trustedIntermediates = new ConcurrentHashMap<>();
+
+	private CertificatePathValidator() {
+		rootCertificate = NetworkMapCertificateManager.getInstance().getRootCertificateAndKeyPair().getCertificate();
+		rootParameters = newParameters(rootCertificate);
+	}
+
+	/**
+	 * @param certPath
+	 * @throws IllegalArgumentException if the path does not lead to the root
+	 */
+	public void validate(CertPath certPath) {
+		@SuppressWarnings("unchecked")
+		List<X509Certificate> certificates = (List<X509Certificate>) certPath.getCertificates();
+		List<X509Certificate> issuedCertificates = withoutRoot(certificates);
+
+		try {
+			TrustedIntermediate trustedIntermediate = getTrustedIntermediate(issuedCertificates);
+
+			if (trustedIntermediate != null) {
+				CertPath issuedPath = CERTIFICATE_FACTORY.get()
+						.generateCertPath(issuedCertificates.subList(0, issuedCertificates.size() - 1));
+				VALIDATOR.get().validate(issuedPath, trustedIntermediate.parameters);
+				return;
+			}
+
+			CertPath rootIssuedPath = issuedCertificates == certificates ? certPath
+					: CERTIFICATE_FACTORY.get().generateCertPath(issuedCertificates);
+			VALIDATOR.get().validate(rootIssuedPath, rootParameters);
+			trust(issuedCertificates);
+		} catch (GeneralSecurityException e) {
+			throw new IllegalArgumentException("The certificate path is invalid.", e);
+		}
+	}
+
+	/**
+	 * @return the certificates of the path below the root
+	 */
+	private List<X509Certificate> withoutRoot(List<X509Certificate> certificates) {
+		int size = certificates.size();
+		return size > 1 && rootCertificate.equals(certificates.get(size - 1)) ? certificates.subList(0, size - 1)
+				: certificates;
+	}
+
+	/**
+	 * @param issuedCertificates the certificates of the path below the root
+	 * @return the entry for the certificate issued by the root if it can stand in
+	 *         for the root
+	 */
+	private TrustedIntermediate getTrustedIntermediate(List<X509Certificate> issuedCertificates) {
+		if (issuedCertificates.size() < 2) {
+			return null;
+		}
+
+		X509Certificate intermediate = issuedCertificates.get(issuedCertificates.size() - 1);
+		TrustedIntermediate trustedIntermediate = trustedIntermediates.get(fingerprint(intermediate));
+
+		if (trustedIntermediate == null) {
+			return null;
+		}
+
+		if (trustedIntermediate.isExpired(System.currentTimeMillis())) {
+			trustedIntermediates.remove(trustedIntermediate.fingerprint, trustedIntermediate);
+			return null;
+		}
+
+		/**
+		 * A trust anchor's own path length constraint is not enforced by PKIX.
+		 */
+		int caCertificatesBelow = issuedCertificates.size() - 2;
+		return caCertificatesBelow <= intermediate.getBasicConstraints() ? trustedIntermediate : null;
+	}
+
+	/**
+	 * Remembers the certificate issued by the root once PKIX has validated it as
+	 * the issuer of another certificate. The last certificate of a path is only
+	 * checked as an end entity, so its basic constraints and key usage are never
+	 * checked when it is the only one.
+	 *
+	 * @param issuedCertificates the validated certificates of the path below the
+	 *                           root
+	 */
+	private void trust(List<X509Certificate> issuedCertificates) {
+		if (issuedCertificates.size() < 2) {
+			return;
+		}
+
+		X509Certificate certificate = issuedCertificates.get(issuedCertificates.size() - 1);
+
+		/**
+		 * The name constraints of a trust anchor are not taken from its certificate,
+		 * so such certificates are always validated from the root.
+		 */
+		if (!isCertificateAuthority(certificate) || certificate.getExtensionValue(NAME_CONSTRAINTS_OID) != null) {
+			return;
+		}
+
+		long now = System.currentTimeMillis();
+
+		if (trustedIntermediates.size() >= CACHE_SIZE) {
+			trustedIntermediates.values().removeIf(trustedIntermediate -> trustedIntermediate.isExpired(now));
+
+			if (trustedIntermediates.size() >= CACHE_SIZE) {
+				return;
+			}
+		}
+
+		String fingerprint = fingerprint(certificate);
+		long expiresAt = Math.min(certificate.getNotAfter().getTime(), now + CACHE_TTL_MILLIS);
+		trustedIntermediates.put(fingerprint,
+				new TrustedIntermediate(fingerprint, newParameters(certificate), expiresAt));
+		LOGGER.debug("Trust the intermediate certificate [{}] until [{}].", certificate.getSubjectX500Principal(),
+				expiresAt);
+	}
+
+	private static boolean isCertificateAuthority(X509Certificate certificate) {
+		boolean[] keyUsage = certificate.getKeyUsage();
+		return certificate.getBasicConstraints() >= 0
+				&& (keyUsage == null || keyUsage.length > KEY_CERT_SIGN && keyUsage[KEY_CERT_SIGN]);
+	}
+
+	/**
+	 * Test hook.
+	 *
+	 * @param certificate
+	 * @return true if paths issued by the certificate are only validated up to it
+	 */
+	boolean isTrusted(X509Certificate certificate) {
+		return trustedIntermediates.containsKey(fingerprint(certificate));
+	}
+
+	private static String fingerprint(X509Certificate certificate) {
+		try {
+			return SecureHash.sha256(certificate.getEncoded()).toString();
+		} catch (GeneralSecurityException e) {
+			throw new IllegalArgumentException("The certificate cannot be encoded.", e);
+		}
+	}
+
+	private static PKIXParameters newParameters(X509Certificate trustedCertificate) {
+		PKIXParameters parameters = newInstance(
+				() -> new PKIXParameters(Collections.singleton(new TrustAnchor(trustedCertificate, null))));
+		parameters.setRevocationEnabled(false);
+		return parameters;
+	}
+
+	private static <T> T newInstance(SecuritySupplier<T> supplier) {
+		try {
+			return supplier.get();
+		} catch (GeneralSecurityException e) {
+			LOGGER.error("This exception should not occur.", e);
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private interface SecuritySupplier<T> {
+		T get() throws GeneralSecurityException;
+	}
+
+	private static class TrustedIntermediate {
+		private final String fingerprint;
+		private final PKIXParameters parameters;
+		private final long expiresAt;
+
+		private TrustedIntermediate(String fingerprint, PKIXParameters parameters, long expiresAt) {
+			this.fingerprint = fingerprint;
+			this.parameters = parameters;
+			this.expiresAt = expiresAt;
+		}
+
+		/**
+		 * The validity of a trust anchor is not checked by PKIX either.
+		 */
+		private boolean isExpired(long now) {
+			return now >= expiresAt;
+		}
+	}
+
+	private static final Logger LOGGER = LoggerFactory.getLogger("cordaNetworkMapLogger");
+
+	public static CertificatePathValidator getInstance() {
+		return SingletonHelper.INSTANCE;
+	}
+
+	private static class SingletonHelper {
+		private static final CertificatePathValidator INSTANCE = new CertificatePathValidator();
+	}
+}
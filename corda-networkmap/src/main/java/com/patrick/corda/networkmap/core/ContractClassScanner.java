@@ -0,0 +1,427 @@
+package com.patrick.corda.networkmap.core;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.corda.core.contracts.Contract;
+
+/**
+ * Finds the concrete classes of a jar which implement the Corda Contract
+ * interface by reading the class files only. No class of the jar is loaded, so
+ * scanning neither fills the metaspace nor runs any static initialiser, and
+ * jars can be scanned concurrently.
+ *
+ * <p>
+ * Supertypes which are not in the jar are looked up as class file resources of
+ * the class loader which loaded Contract, again without loading them, and then
+ * in the other jars of the same {@link Session}, e.g. a contract whose base
+ * class lives in another CorDapp.
+ * </p>
+ *
+ * @see JVM specification, section 4.1
+ * @author Patrick Pan
+ *
+ */
+public class ContractClassScanner {
+
+	private static final int MAGIC = 0xCAFEBABE;
+
+	private static final int ACC_INTERFACE = 0x0200;
+	private static final int ACC_ABSTRACT = 0x0400;
+
+	private static final String CLASS_SUFFIX = ".class";
+	private static final String CONTRACT = Contract.class.getName();
+
+	/**
+	 * No class of the platform implements Contract.
+	 */
+	private static final List<String> PLATFORM_PACKAGES = Arrays.asList("java.", "javax.", "kotlin.");
+
+	private final ClassLoader classLoader;
+
+	/**
+	 * Class files found outside the jars, shared by all scans. A missing class is
+	 * recorded as an empty header.
+	 */
+	private final ConcurrentMap<String, ClassHeader> externalClassHeaders = new ConcurrentHashMap<>();
+
+	public ContractClassScanner(ClassLoader classLoader) {
+		this.classLoader = classLoader;
+	}
+
+	/**
+	 * Scans the jar on its own.
+	 *
+	 * @param jar
+	 * @return the names of the contract classes in the order they appear in the
+	 *         jar
+	 * @throws IOException
+	 */
+	public List<String> scan(File jar) throws IOException {
+		return newSession(Collections.emptyList()).scan(jar).getContracts();
+	}
+
+	/**
+	 * @param jars the jars scanned together, whose classes may extend each other
+	 * @return
+	 */
+	public Session newSession(List<File> jars) {
+		return new Session(jars);
+	}
+
+	/**
+	 * The jars scanned together, e.g. by one scan of the CorDapps directory. The
+	 * class headers of another jar are only read once a supertype is looked up in
+	 * it, and then kept until the session is discarded.
+	 */
+	public class Session {
+
+		private final List<File> jars;
+		private final ConcurrentMap<File, Map<String, ClassHeader>> jarClassHeaders = new ConcurrentHashMap<>();
+
+		private Session(List<File> jars) {
+			this.jars = jars;
+		}
+
+		/**
+		 * @param jar
+		 * @return the names of the contract classes in the order they appear in the
+		 *         jar
+		 * @throws IOException
+		 */
+		public ScanResult scan(File jar) throws IOException {
+			Map<String, ClassHeader> classHeaders = getJarClassHeaders(jar);
+			Resolution resolution = new Resolution(jar, classHeaders);
+			List<String> contracts = new ArrayList<>();
+
+			for (ClassHeader classHeader : classHeaders.values()) {
+				if (classHeader.isConcrete() && resolution.implementsContract(classHeader.name)) {
+					contracts.add(classHeader.name);
+				}
+			}
+
+			return new ScanResult(contracts, !resolution.dependsOnOtherJars && !resolution.unresolved);
+		}
+
+		private Map<String, ClassHeader> getJarClassHeaders(File jar) throws IOException {
+			try {
+				return jarClassHeaders.computeIfAbsent(jar, key -> {
+					try {
+						return readJarClassHeaders(key);
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				});
+			} catch (UncheckedIOException e) {
+				throw e.getCause();
+			}
+		}
+
+		/**
+		 * @param jar  the jar being scanned
+		 * @param name
+		 * @return the header of the class in the first other jar containing it, or
+		 *         null
+		 */
+		private ClassHeader findInOtherJars(File jar, String name) {
+			for (File otherJar : jars) {
+				if (otherJar.equals(jar)) {
+					continue;
+				}
+
+				try {
+					ClassHeader classHeader = getJarClassHeaders(otherJar).get(name);
+
+					if (classHeader != null) {
+						return classHeader;
+					}
+				} catch (IOException e) {
+					LOGGER.warn(String.format("Fail to read [%s] while resolving [%s].", otherJar.getAbsolutePath(),
+							name), e);
+				}
+			}
+
+			return null;
+		}
+
+		/**
+		 * Resolves the hierarchy of the classes of one jar.
+		 */
+		private class Resolution {
+
+			private final File jar;
+			private final Map<String, ClassHeader> classHeaders;
+			private final Map<String, Boolean> implementsContract = new HashMap<>();
+
+			private boolean dependsOnOtherJars;
+			private boolean unresolved;
+
+			private Resolution(File jar, Map<String, ClassHeader> classHeaders) {
+				this.jar = jar;
+				this.classHeaders = classHeaders;
+			}
+
+			private boolean implementsContract(String name) {
+				if (CONTRACT.equals(name)) {
+					return true;
+				}
+
+				if (PLATFORM_PACKAGES.stream().anyMatch(name::startsWith)) {
+					return false;
+				}
+
+				Boolean known = implementsContract.get(name);
+
+				if (known != null) {
+					return known;
+				}
+
+				/**
+				 * Guards against cycles in a malformed hierarchy.
+				 */
+				implementsContract.put(name, false);
+
+				ClassHeader classHeader = getClassHeader(name);
+				boolean result = false;
+
+				if (classHeader.superName != null) {
+					result = implementsContract(classHeader.superName);
+				}
+
+				for (int i = 0; !result && i < classHeader.interfaceNames.length; i++) {
+					result = implementsContract(classHeader.interfaceNames[i]);
+				}
+
+				implementsContract.put(name, result);
+				return result;
+			}
+
+			private ClassHeader getClassHeader(String name) {
+				ClassHeader classHeader = classHeaders.get(name);
+
+				if (classHeader != null) {
+					return classHeader;
+				}
+
+				classHeader = getExternalClassHeader(name);
+
+				if (classHeader != ClassHeader.MISSING) {
+					return classHeader;
+				}
+
+				classHeader = findInOtherJars(jar, name);
+
+				if (classHeader != null) {
+					dependsOnOtherJars = true;
+					return classHeader;
+				}
+
+				unresolved = true;
+				return ClassHeader.MISSING;
+			}
+		}
+	}
+
+	/**
+	 * The contracts of one jar.
+	 */
+	public static class ScanResult {
+
+		private final List<String> contracts;
+		private final boolean selfContained;
+
+		private ScanResult(List<String> contracts, boolean selfContained) {
+			this.contracts = contracts;
+			this.selfContained = selfContained;
+		}
+
+		/**
+		 * @return the names of the contract classes in the order they appear in the
+		 *         jar
+		 */
+		public List<String> getContracts() {
+			return contracts;
+		}
+
+		/**
+		 * @return true if the result depends on nothing but the jar and the class
+		 *         loader of Contract, so it may be cached by jar hash
+		 */
+		public boolean isSelfContained() {
+			return selfContained;
+		}
+	}
+
+	private static Map<String, ClassHeader> readJarClassHeaders(File jar) throws IOException {
+		Map<String, ClassHeader> classHeaders = new LinkedHashMap<>();
+
+		try (JarFile jarFile = new JarFile(jar)) {
+			Enumeration<JarEntry> entries = jarFile.entries();
+
+			while (entries.hasMoreElements()) {
+				JarEntry entry = entries.nextElement();
+
+				if (entry.isDirectory() || !entry.getName().endsWith(CLASS_SUFFIX)
+						|| entry.getName().startsWith("META-INF/")) {
+					continue;
+				}
+
+				try (InputStream inputStream = jarFile.getInputStream(entry)) {
+					ClassHeader classHeader = readClassHeader(inputStream);
+
+					if (classHeader != null) {
+						classHeaders.put(classHeader.name, classHeader);
+					}
+				}
+			}
+		}
+
+		return classHeaders;
+	}
+
+	private ClassHeader getExternalClassHeader(String name) {
+		return externalClassHeaders.computeIfAbsent(name, key -> {
+			try (InputStream inputStream = classLoader.getResourceAsStream(key.replace('.', '/') + CLASS_SUFFIX)) {
+				ClassHeader classHeader = inputStream == null ? null : readClassHeader(inputStream);
+				return classHeader == null ? ClassHeader.MISSING : classHeader;
+			} catch (IOException e) {
+				return ClassHeader.MISSING;
+			}
+		});
+	}
+
+	/**
+	 * Reads the class file up to the list of interfaces.
+	 *
+	 * @param inputStream
+	 * @return null if it is not a class file
+	 * @throws IOException
+	 */
+	static ClassHeader readClassHeader(InputStream inputStream) throws IOException {
+		DataInputStream dataInputStream = new DataInputStream(new BufferedInputStream(inputStream));
+
+		if (dataInputStream.readInt() != MAGIC) {
+			return null;
+		}
+
+		dataInputStream.readUnsignedShort();
+		dataInputStream.readUnsignedShort();
+
+		int constantPoolCount = dataInputStream.readUnsignedShort();
+		String[] utf8s = new String[constantPoolCount];
+		int[] classNameIndexes = new int[constantPoolCount];
+
+		for (int i = 1; i < constantPoolCount; i++) {
+			int tag = dataInputStream.readUnsignedByte();
+
+			switch (tag) {
+			case 1:
+				utf8s[i] = dataInputStream.readUTF();
+				break;
+			case 7:
+				classNameIndexes[i] = dataInputStream.readUnsignedShort();
+				break;
+			case 8:
+			case 16:
+			case 19:
+			case 20:
+				dataInputStream.skipBytes(2);
+				break;
+			case 15:
+				dataInputStream.skipBytes(3);
+				break;
+			case 3:
+			case 4:
+			case 9:
+			case 10:
+			case 11:
+			case 12:
+			case 17:
+			case 18:
+				dataInputStream.skipBytes(4);
+				break;
+			case 5:
+			case 6:
+				/**
+				 * Long and double constants take two entries.
+				 */
+				dataInputStream.skipBytes(8);
+				i++;
+				break;
+			default:
+				throw new IOException(String.format("Unknown constant pool tag [%d].", tag));
+			}
+		}
+
+		int accessFlags = dataInputStream.readUnsignedShort();
+		String name = className(dataInputStream.readUnsignedShort(), utf8s, classNameIndexes);
+		String superName = className(dataInputStream.readUnsignedShort(), utf8s, classNameIndexes);
+
+		String[] interfaceNames = new String[dataInputStream.readUnsignedShort()];
+		for (int i = 0; i < interfaceNames.length; i++) {
+			interfaceNames[i] = className(dataInputStream.readUnsignedShort(), utf8s, classNameIndexes);
+		}
+
+		return new ClassHeader(name, accessFlags, superName, interfaceNames);
+	}
+
+	/**
+	 * @return the binary name, or null for index 0, i.e. the super class of
+	 *         java.lang.Object
+	 */
+	private static String className(int classIndex, String[] utf8s, int[] classNameIndexes) throws IOException {
+		if (classIndex == 0) {
+			return null;
+		}
+
+		if (classIndex >= classNameIndexes.length || utf8s[classNameIndexes[classIndex]] == null) {
+			throw new IOException(String.format("Invalid class reference [%d].", classIndex));
+		}
+
+		return utf8s[classNameIndexes[classIndex]].replace('/', '.');
+	}
+
+	static class ClassHeader {
+		private static final ClassHeader MISSING = new ClassHeader(null, ACC_INTERFACE, null, new String[0]);
+
+		private final String name;
+		private final int accessFlags;
+		private final String superName;
+		private final String[] interfaceNames;
+
+		private ClassHeader(String name, int accessFlags, String superName, String[] interfaceNames) {
+			this.name = name;
+			this.accessFlags = accessFlags;
+			this.superName = superName;
+			this.interfaceNames = interfaceNames;
+		}
+
+		/**
+		 * Abstract classes and interfaces cannot be instantiated.
+		 */
+		boolean isConcrete() {
+			return (accessFlags & (ACC_INTERFACE | ACC_ABSTRACT)) == 0;
+		}
+	}
+
+	private static final Logger LOGGER = LoggerFactory.getLogger("cordaNetworkMapLogger");
+}
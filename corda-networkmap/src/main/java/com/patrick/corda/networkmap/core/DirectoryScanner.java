@@ -0,0 +1,63 @@
+package com.patrick.corda.networkmap.core;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Processes the files of a directory concurrently on a pool of bounded size.
+ * Files are listed and their results returned in the order of the file names,
+ * so nothing built from them depends on the order the file system lists them
+ * in.
+ *
+ * @author Patrick Pan
+ *
+ */
+final class DirectoryScanner {
+
+	private DirectoryScanner() {
+	}
+
+	/**
+	 * @param directory
+	 * @param suffix    e.g. ".jar"
+	 * @return the regular files with the suffix sorted by name, or an empty list
+	 *         if the directory cannot be read
+	 */
+	static List<File> listFiles(File directory, String suffix) {
+		File[] files = directory.listFiles(file -> file.isFile() && file.getName().endsWith(suffix));
+
+		if (files == null) {
+			return Collections.emptyList();
+		}
+
+		return Arrays.stream(files).sorted(Comparator.comparing(File::getName)).collect(Collectors.toList());
+	}
+
+	/**
+	 * @param files       in the order the results are wanted
+	 * @param parallelism the number of files processed at the same time
+	 * @param processor   returns null for a file to be left out
+	 * @return the results in the order of the files
+	 * @throws InterruptedException
+	 * @throws ExecutionException
+	 */
+	static <T> List<T> process(List<File> files, int parallelism, Function<File, T> processor)
+			throws InterruptedException, ExecutionException {
+		ForkJoinPool forkJoinPool = new ForkJoinPool(parallelism);
+
+		try {
+			return forkJoinPool.submit(() -> files.parallelStream().map(processor).filter(Objects::nonNull)
+					.collect(Collectors.toList())).get();
+		} finally {
+			forkJoinPool.shutdown();
+		}
+	}
+}
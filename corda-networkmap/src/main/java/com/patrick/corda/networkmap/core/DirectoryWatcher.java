@@ -0,0 +1,106 @@
+package com.patrick.corda.networkmap.core;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Calls a listener on its own daemon thread whenever the files of a directory
+ * change. Events are collected until the directory has been quiet for a while,
+ * so copying a large file in triggers a single call once it is complete.
+ *
+ * @author Patrick Pan
+ *
+ */
+public class DirectoryWatcher implements Closeable {
+
+	/**
+	 * How long in milliseconds the directory must stay unchanged before the
+	 * listener is called.
+	 */
+	private static final long QUIET_PERIOD_MILLIS = Long.getLong("corda.networkmap.watch.quietPeriod", 2000L);
+
+	private final File directory;
+	private final Runnable listener;
+	private final WatchService watchService;
+	private final Thread thread;
+
+	private DirectoryWatcher(File directory, Runnable listener) throws IOException {
+		this.directory = directory;
+		this.listener = listener;
+		this.watchService = directory.toPath().getFileSystem().newWatchService();
+
+		directory.toPath().register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+
+		thread = new Thread(this::run, "directory-watcher-" + directory.getName());
+		thread.setDaemon(true);
+	}
+
+	/**
+	 * @param directory
+	 * @param listener  must not block for long, since changes made while it runs
+	 *                  are only reported once it returns
+	 * @return a started watcher
+	 * @throws IOException
+	 */
+	public static DirectoryWatcher watch(File directory, Runnable listener) throws IOException {
+		DirectoryWatcher directoryWatcher = new DirectoryWatcher(directory, listener);
+		directoryWatcher.thread.start();
+		LOGGER.info("Watch [{}] for changes.", directory.getAbsolutePath());
+		return directoryWatcher;
+	}
+
+	private void run() {
+		try {
+			while (true) {
+				awaitChange(watchService.take());
+
+				WatchKey watchKey;
+				while ((watchKey = watchService.poll(QUIET_PERIOD_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+					awaitChange(watchKey);
+				}
+
+				LOGGER.info("[{}] has changed.", directory.getAbsolutePath());
+				notifyListener();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ClosedWatchServiceException e) {
+			LOGGER.debug("Stop watching [{}].", directory.getAbsolutePath());
+		}
+	}
+
+	private void awaitChange(WatchKey watchKey) {
+		watchKey.pollEvents();
+
+		if (!watchKey.reset()) {
+			LOGGER.warn("[{}] can no longer be watched.", directory.getAbsolutePath());
+		}
+	}
+
+	private void notifyListener() {
+		try {
+			listener.run();
+		} catch (Exception e) {
+			LOGGER.error("Unexpected exception occurs.", e);
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		watchService.close();
+	}
+
+	private static final Logger LOGGER = LoggerFactory.getLogger("cordaNetworkMapLogger");
+}
@@ -0,0 +1,24 @@
+package com.patrick.corda.networkmap.core;
+
+import java.util.function.LongSupplier;
+
+/**
+ * A value read from its owner whenever it is scraped, so nothing is recorded
+ * on the hot paths at all.
+ *
+ * @author Patrick Pan
+ *
+ */
+public class Gauge implements GaugeMBean {
+
+	private final LongSupplier supplier;
+
+	Gauge(LongSupplier supplier) {
+		this.supplier = supplier;
+	}
+
+	@Override
+	public long getValue() {
+		return supplier.getAsLong();
+	}
+}
@@ -0,0 +1,12 @@
+package com.patrick.corda.networkmap.core;
+
+/**
+ * What JMX shows of a {@link Gauge}.
+ *
+ * @author Patrick Pan
+ *
+ */
+public interface GaugeMBean {
+
+	long getValue();
+}
@@ -0,0 +1,172 @@
+package com.patrick.corda.networkmap.core;
+
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Holds the timers and gauges of the network map. Every metric is registered
+ * once up front, is visible over JMX under "com.patrick.corda.networkmap" and
+ * is written in the Prometheus text format by "/network-map/metrics". Metrics
+ * of the same name may be told apart by one label, e.g. the endpoint.
+ *
+ * @author Patrick Pan
+ *
+ */
+public class MetricsRegistry {
+
+	private static final String DOMAIN = "com.patrick.corda.networkmap";
+	private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+	private final ConcurrentMap<String, Family> families = new ConcurrentSkipListMap<>();
+
+	/**
+	 * @param name the metric name, e.g. "networkmap_sign_network_map_seconds"
+	 * @param help what is timed
+	 * @return the timer of that name, created if necessary
+	 */
+	public Timer timer(String name, String help) {
+		return timer(name, help, null, null);
+	}
+
+	/**
+	 * @param name       the metric name
+	 * @param help       what is timed
+	 * @param labelName  e.g. "endpoint"
+	 * @param labelValue e.g. "GetNetworkMap"
+	 * @return the timer of that name and label, created if necessary
+	 */
+	public Timer timer(String name, String help, String labelName, String labelValue) {
+		Family family = family(name, help, "histogram", labelName);
+		return (Timer) family.metrics.computeIfAbsent(label(labelValue), key -> {
+			Timer timer = new Timer();
+			registerMBean("Timer", name, labelName, labelValue, timer);
+			return timer;
+		});
+	}
+
+	/**
+	 * A gauge registered again, e.g. after a redeployment, reads the new supplier.
+	 *
+	 * @param name     the metric name
+	 * @param help     what is measured
+	 * @param supplier reads the current value
+	 */
+	public void gauge(String name, String help, LongSupplier supplier) {
+		Gauge gauge = new Gauge(supplier);
+		family(name, help, "gauge", null).metrics.put(label(null), gauge);
+		registerMBean("Gauge", name, null, null, gauge);
+	}
+
+	private Family family(String name, String help, String type, String labelName) {
+		Family family = families.computeIfAbsent(name, key -> new Family(help, type, labelName));
+
+		if (!family.type.equals(type)) {
+			throw new IllegalArgumentException(String.format("[%s] is already a %s.", name, family.type));
+		}
+
+		return family;
+	}
+
+	private static String label(String labelValue) {
+		return labelValue == null ? "" : labelValue;
+	}
+
+	private void registerMBean(String type, String name, String labelName, String labelValue, Object mBean) {
+		MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+
+		try {
+			ObjectName objectName = new ObjectName(DOMAIN + ":type=" + type + ",name=" + name
+					+ (labelName == null ? "" : "," + labelName + "=" + labelValue));
+
+			if (mBeanServer.isRegistered(objectName)) {
+				mBeanServer.unregisterMBean(objectName);
+			}
+
+			mBeanServer.registerMBean(mBean, objectName);
+		} catch (JMException e) {
+			LOGGER.warn(String.format("Fail to expose the metric [%s] over JMX.", name), e);
+		}
+	}
+
+	/**
+	 * Writes every metric in the Prometheus text format.
+	 *
+	 * @param writer
+	 */
+	public void writeTo(PrintWriter writer) {
+		families.forEach((name, family) -> {
+			writer.printf("# HELP %s %s%n", name, family.help);
+			writer.printf("# TYPE %s %s%n", name, family.type);
+
+			family.metrics.forEach((labelValue, metric) -> {
+				String labels = family.labelName == null ? ""
+						: String.format("%s=\"%s\"", family.labelName, labelValue);
+
+				if (metric instanceof Timer) {
+					writeTimer(writer, name, labels, (Timer) metric);
+				} else {
+					writer.printf("%s%s %d%n", name, labels.isEmpty() ? "" : "{" + labels + "}",
+							((Gauge) metric).getValue());
+				}
+			});
+		});
+	}
+
+	private void writeTimer(PrintWriter writer, String name, String labels, Timer timer) {
+		String separator = labels.isEmpty() ? "" : ",";
+		long cumulativeCount = 0;
+
+		for (int i = 0; i < Timer.BUCKETS - 1; i++) {
+			cumulativeCount += timer.getBucketCount(i);
+			writer.printf("%s_bucket{%s%sle=\"%s\"} %d%n", name, labels, separator,
+					BigDecimal.valueOf(Timer.getUpperBoundMicros(i)).movePointLeft(6).toPlainString(),
+					cumulativeCount);
+		}
+
+		cumulativeCount += timer.getBucketCount(Timer.BUCKETS - 1);
+		writer.printf("%s_bucket{%s%sle=\"+Inf\"} %d%n", name, labels, separator, cumulativeCount);
+
+		String braces = labels.isEmpty() ? "" : "{" + labels + "}";
+		writer.printf("%s_sum%s %s%n", name, braces, timer.getSumNanos() / NANOS_PER_SECOND);
+		writer.printf("%s_count%s %d%n", name, braces, cumulativeCount);
+	}
+
+	private static class Family {
+		private final String help;
+		private final String type;
+		private final String labelName;
+		private final Map<String, Object> metrics = new ConcurrentSkipListMap<>();
+
+		private Family(String help, String type, String labelName) {
+			this.help = help;
+			this.type = type;
+			this.labelName = labelName;
+		}
+	}
+
+	private static final Logger LOGGER = LoggerFactory.getLogger("cordaNetworkMapLogger");
+
+	private MetricsRegistry() {
+	}
+
+	public static MetricsRegistry getInstance() {
+		return SingletonHelper.INSTANCE;
+	}
+
+	private static class SingletonHelper {
+		private static final MetricsRegistry INSTANCE = new MetricsRegistry();
+	}
+}
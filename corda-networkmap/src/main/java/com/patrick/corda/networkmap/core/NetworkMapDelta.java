@@ -0,0 +1,45 @@
+package com.patrick.corda.networkmap.core;
+
+import java.util.Collections;
+import java.util.List;
+
+import net.corda.core.crypto.SecureHash;
+
+/**
+ * The node info hashes added to and removed from the network map between two
+ * of its versions.
+ *
+ * @author Patrick Pan
+ *
+ */
+public class NetworkMapDelta {
+
+	private final long fromVersion;
+	private final long toVersion;
+	private final List<SecureHash> addedHashes;
+	private final List<SecureHash> removedHashes;
+
+	public NetworkMapDelta(long fromVersion, long toVersion, List<SecureHash> addedHashes,
+			List<SecureHash> removedHashes) {
+		this.fromVersion = fromVersion;
+		this.toVersion = toVersion;
+		this.addedHashes = Collections.unmodifiableList(addedHashes);
+		this.removedHashes = Collections.unmodifiableList(removedHashes);
+	}
+
+	public long getFromVersion() {
+		return fromVersion;
+	}
+
+	public long getToVersion() {
+		return toVersion;
+	}
+
+	public List<SecureHash> getAddedHashes() {
+		return addedHashes;
+	}
+
+	public List<SecureHash> getRemovedHashes() {
+		return removedHashes;
+	}
+}
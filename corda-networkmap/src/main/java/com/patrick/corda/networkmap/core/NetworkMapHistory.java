@@ -0,0 +1,136 @@
+package com.patrick.corda.networkmap.core;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import net.corda.core.crypto.SecureHash;
+
+/**
+ * The changes between the most recent versions of the network map, so that a
+ * client which already holds a version only has to fetch what changed since.
+ * The cost of recording a version is proportional to the size of the network
+ * map, which is paid anyway to sign it, while the cost of answering a client
+ * is proportional to the churn.
+ *
+ * @author Patrick Pan
+ *
+ */
+public class NetworkMapHistory {
+
+	private final int capacity;
+	private final Deque<NetworkMapDelta> deltas = new ArrayDeque<>();
+
+	private Set<SecureHash> currentHashes;
+	private long currentVersion;
+
+	/**
+	 * @param capacity the number of versions kept
+	 */
+	public NetworkMapHistory(int capacity) {
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Records the node info hashes of a newly published version.
+	 *
+	 * @param version    must be greater than every version recorded before
+	 * @param nodeInfoHashes
+	 */
+	public synchronized void record(long version, List<SecureHash> nodeInfoHashes) {
+		Set<SecureHash> hashes = new HashSet<>(nodeInfoHashes);
+
+		if (currentHashes != null) {
+			List<SecureHash> addedHashes = new ArrayList<>();
+			List<SecureHash> removedHashes = new ArrayList<>();
+
+			nodeInfoHashes.stream().filter(hash -> !currentHashes.contains(hash)).forEach(addedHashes::add);
+			currentHashes.stream().filter(hash -> !hashes.contains(hash)).forEach(removedHashes::add);
+
+			deltas.addLast(new NetworkMapDelta(currentVersion, version, addedHashes, removedHashes));
+
+			while (deltas.size() > capacity) {
+				deltas.removeFirst();
+			}
+		}
+
+		currentHashes = hashes;
+		currentVersion = version;
+	}
+
+	/**
+	 * Merges the changes made after the given version.
+	 *
+	 * @param version the version the client holds
+	 * @return the changes up to the latest version, or null if the given version
+	 *         is no longer, or has never been, in the history
+	 */
+	public synchronized NetworkMapDelta getDeltaSince(long version) {
+		return getDeltaSince(version, currentVersion);
+	}
+
+	/**
+	 * Merges the changes made after the given version, leaving out the ones of
+	 * versions newer than "untilVersion".
+	 *
+	 * @param version      the version the client holds
+	 * @param untilVersion the latest version the client may be told about
+	 * @return the changes up to "untilVersion", or null if the given version is
+	 *         no longer, or has never been, in the history, or is newer than
+	 *         "untilVersion"
+	 */
+	public synchronized NetworkMapDelta getDeltaSince(long version, long untilVersion) {
+		long toVersion = Math.min(untilVersion, currentVersion);
+
+		if (currentHashes == null || version > toVersion) {
+			return null;
+		}
+
+		long oldestVersion = deltas.isEmpty() ? currentVersion : deltas.peekFirst().getFromVersion();
+
+		if (version < oldestVersion) {
+			return null;
+		}
+
+		Set<SecureHash> addedHashes = new LinkedHashSet<>();
+		Set<SecureHash> removedHashes = new LinkedHashSet<>();
+		Iterator<NetworkMapDelta> iterator = deltas.descendingIterator();
+		List<NetworkMapDelta> newerDeltas = new ArrayList<>();
+
+		while (iterator.hasNext()) {
+			NetworkMapDelta delta = iterator.next();
+
+			if (delta.getToVersion() <= version) {
+				break;
+			}
+
+			if (delta.getToVersion() <= toVersion) {
+				newerDeltas.add(delta);
+			}
+		}
+
+		for (int i = newerDeltas.size() - 1; i >= 0; i--) {
+			NetworkMapDelta delta = newerDeltas.get(i);
+
+			for (SecureHash hash : delta.getAddedHashes()) {
+				if (!removedHashes.remove(hash)) {
+					addedHashes.add(hash);
+				}
+			}
+
+			for (SecureHash hash : delta.getRemovedHashes()) {
+				if (!addedHashes.remove(hash)) {
+					removedHashes.add(hash);
+				}
+			}
+		}
+
+		return new NetworkMapDelta(version, toVersion, new ArrayList<>(addedHashes),
+				new ArrayList<>(removedHashes));
+	}
+}
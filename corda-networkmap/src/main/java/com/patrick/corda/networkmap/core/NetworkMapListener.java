@@ -0,0 +1,21 @@
+package com.patrick.corda.networkmap.core;
+
+/**
+ * Notified every time {@link NetworkMapManager} publishes a newly signed
+ * network map.
+ * 
+ * @author Patrick Pan
+ *
+ */
+public interface NetworkMapListener {
+
+	/**
+	 * Called on the thread which signed the network map, so implementations must
+	 * return quickly and must not block.
+	 * 
+	 * @param version                  the version of the network map just
+	 *                                 published
+	 * @param signedNetworkMapArtifact
+	 */
+	void onNetworkMapPublished(long version, SignedArtifact signedNetworkMapArtifact);
+}
@@ -2,9 +2,14 @@ package com.patrick.corda.networkmap.core;
 
 import static com.patrick.corda.networkmap.Utils.signData;
 
+import java.io.IOException;
 import java.security.InvalidKeyException;
 import java.security.SignatureException;
+import java.time.Instant;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -22,20 +27,103 @@ import net.corda.nodeapi.internal.network.ParametersUpdate;
  */
 public class NetworkMapManager {
 
-	private byte[] signedNetworkMapByteArray;
+	/**
+	 * Replaced by the refresh thread and read by every request thread.
+	 */
+	private final AtomicReference<NetworkMapSnapshot> snapshot = new AtomicReference<>();
+
+	/**
+	 * The version of the first snapshot. It is the time the process started in
+	 * milliseconds, so versions keep increasing across restarts as long as fewer
+	 * than one network map per millisecond is signed.
+	 */
+	private final long initialVersion = System.currentTimeMillis();
+
+	/**
+	 * The number of versions whose changes are kept for delta requests.
+	 */
+	private static final int HISTORY_CAPACITY = Integer.getInteger("corda.networkmap.delta.history", 1000);
+
+	private final NetworkMapHistory history = new NetworkMapHistory(HISTORY_CAPACITY);
+
+	private final Set<NetworkMapListener> listeners = new CopyOnWriteArraySet<>();
+
+	private final Timer signTimer = MetricsRegistry.getInstance().timer("networkmap_sign_network_map_seconds",
+			"Time spent signing the network map.");
+	private final Timer serializeTimer = MetricsRegistry.getInstance()
+			.timer("networkmap_serialize_network_map_seconds", "Time spent serializing the signed network map.");
 
 	private NetworkMapManager() {
-		refreshNetworkMap();
+		MetricsRegistry metricsRegistry = MetricsRegistry.getInstance();
+		metricsRegistry.gauge("networkmap_signed_network_map_bytes", "The size of the signed network map.",
+				() -> {
+					NetworkMapSnapshot current = snapshot.get();
+					return current == null ? 0 : current.getSignedNetworkMapByteArray().length;
+				});
+		metricsRegistry.gauge("networkmap_version", "The version of the network map being served.", () -> {
+			NetworkMapSnapshot current = snapshot.get();
+			return current == null ? 0 : current.getVersion();
+		});
+
+		NetworkMapSnapshot storedSnapshot = loadStoredSnapshot();
+
+		if (storedSnapshot == null) {
+			refreshNetworkMap();
+		} else {
+			snapshot.set(storedSnapshot);
+		}
 	}
 
-	private byte[] buildSignedNetworkMapByteArray() throws InvalidKeyException, SignatureException {
-		NetworkMap networkMap = buildNetworkMap();
+	/**
+	 * Serve the network map signed before the restart straight away as long as it
+	 * still refers to the current network parameters.
+	 * 
+	 * @return
+	 */
+	private NetworkMapSnapshot loadStoredSnapshot() {
+		try {
+			byte[] byteArray = NodeInfoStore.getInstance().loadSignedNetworkMap();
+
+			if (byteArray == null) {
+				return null;
+			}
+
+			@SuppressWarnings("unchecked")
+			SignedDataWithCert<NetworkMap> signedNetworkMap = SerializationEnvironmentManager.getInstance()
+					.deserializeObjectOnContext(SignedDataWithCert.class, byteArray);
+			NetworkMap networkMap = signedNetworkMap.verified();
+			SecureHash networkParameterHash = networkMap.getNetworkParameterHash();
+
+			if (!networkParameterHash.equals(NetworkParametersManager.getInstance().getSignedNetworkParametersHash())) {
+				LOGGER.info("The stored network map refers to outdated network parameters [{}].", networkParameterHash);
+				return null;
+			}
+
+			history.record(initialVersion, networkMap.getNodeInfoHashes());
+			return new NetworkMapSnapshot(initialVersion, networkMap.getNodeInfoHashes(),
+					SignedArtifact.newCompressedInstance(byteArray), Instant.now());
+		} catch (IOException e) {
+			LOGGER.error("Fail to load the stored network map.", e);
+		} catch (Exception e) {
+			LOGGER.error("Unexpected exception occurs.", e);
+		}
+
+		return null;
+	}
 
+	private byte[] buildSignedNetworkMapByteArray(NetworkMap networkMap)
+			throws InvalidKeyException, SignatureException {
 		/**
 		 * @see the 16th line of NetworkMap.kt
 		 */
+		long start = System.nanoTime();
 		SignedDataWithCert<NetworkMap> signedNetworkMap = signNetworkMap(networkMap);
-		return serializeSignedNetworkMapOnContext(signedNetworkMap).getBytes();
+		long signed = System.nanoTime();
+		signTimer.record(signed - start);
+
+		byte[] signedNetworkMapByteArray = serializeSignedNetworkMapOnContext(signedNetworkMap).getBytes();
+		serializeTimer.record(System.nanoTime() - signed);
+		return signedNetworkMapByteArray;
 	}
 
 	private SerializedBytes<SignedDataWithCert<NetworkMap>> serializeSignedNetworkMapOnContext(
@@ -51,25 +139,90 @@ public class NetworkMapManager {
 	private NetworkMap buildNetworkMap() {
 		List<SecureHash> nodeInfoHashes = NodeInfoHashManager.getInstance().getSignedNodeInfoHashList();
 
-		SecureHash networkParameterHash = NetworkParametersManager.getInstance().getSignedNetworkParametersHash();
+		NetworkParametersManager networkParametersManager = NetworkParametersManager.getInstance();
+		SecureHash networkParameterHash = networkParametersManager.getSignedNetworkParametersHash();
 		LOGGER.debug("The value of [networkParameterHash] is [{}].", networkParameterHash);
 
-		ParametersUpdate parametersUpdate = null;
+		/**
+		 * Announces network parameters which become current at its deadline.
+		 */
+		ParametersUpdate parametersUpdate = networkParametersManager.getParametersUpdate();
 		return new NetworkMap(nodeInfoHashes, networkParameterHash, parametersUpdate);
 	}
 
-	public void refreshNetworkMap() {
+	public synchronized void refreshNetworkMap() {
 		try {
-			signedNetworkMapByteArray = buildSignedNetworkMapByteArray();
-		} catch (InvalidKeyException | SignatureException e) {
+			NetworkMap networkMap = buildNetworkMap();
+			byte[] signedNetworkMapByteArray = buildSignedNetworkMapByteArray(networkMap);
+			SignedArtifact artifact = SignedArtifact.newCompressedInstance(signedNetworkMapByteArray);
+			NetworkMapSnapshot previous = snapshot.get();
+			long publishedVersion = (previous == null ? initialVersion : previous.getVersion()) + 1;
+
+			/**
+			 * The history must know a version before a client can see it.
+			 */
+			history.record(publishedVersion, networkMap.getNodeInfoHashes());
+			snapshot.set(new NetworkMapSnapshot(publishedVersion, networkMap.getNodeInfoHashes(), artifact,
+					Instant.now()));
+			notifyListeners(publishedVersion, artifact);
+			NodeInfoStore.getInstance().saveSignedNetworkMap(signedNetworkMapByteArray);
+		} catch (InvalidKeyException | SignatureException | IOException e) {
 			LOGGER.error("This exception should not occur.", e);
 		} catch (Exception e) {
 			LOGGER.error("Unexpected exception occurs.", e);
 		}
 	}
 
+	private void notifyListeners(long publishedVersion, SignedArtifact artifact) {
+		for (NetworkMapListener listener : listeners) {
+			try {
+				listener.onNetworkMapPublished(publishedVersion, artifact);
+			} catch (Exception e) {
+				LOGGER.error("Unexpected exception occurs.", e);
+			}
+		}
+	}
+
+	public void addListener(NetworkMapListener listener) {
+		listeners.add(listener);
+	}
+
+	public void removeListener(NetworkMapListener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Read the version and the artifact from the same snapshot when both are
+	 * needed.
+	 * 
+	 * @return the network map being served
+	 */
+	public NetworkMapSnapshot getSnapshot() {
+		return snapshot.get();
+	}
+
+	public long getVersion() {
+		return snapshot.get().getVersion();
+	}
+
+	/**
+	 * The history records a version just before it is served, so the delta
+	 * stops at the version being served rather than the latest recorded one.
+	 *
+	 * @param since the version the client holds
+	 * @return the node info hashes added and removed since then, or null if the
+	 *         client has to fetch the whole network map again
+	 */
+	public NetworkMapDelta getDeltaSince(long since) {
+		return history.getDeltaSince(since, snapshot.get().getVersion());
+	}
+
 	public byte[] getSignedNetworkMapByteArray() {
-		return signedNetworkMapByteArray;
+		return snapshot.get().getSignedNetworkMapByteArray();
+	}
+
+	public SignedArtifact getSignedNetworkMapArtifact() {
+		return snapshot.get().getSignedArtifact();
 	}
 
 	private static final Logger LOGGER = LoggerFactory.getLogger("cordaNetworkMapLogger");
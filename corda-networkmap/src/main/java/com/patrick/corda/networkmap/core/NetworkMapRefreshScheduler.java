@@ -0,0 +1,101 @@
+package com.patrick.corda.networkmap.core;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Coalesces changes of the registered nodes into as few network map
+ * re-signings as possible. A refresh runs at most once per window, or as soon
+ * as enough changes are pending, on a single background thread so that
+ * publishers never wait for the network map to be rebuilt and signed.
+ * 
+ * @author Patrick Pan
+ *
+ */
+public class NetworkMapRefreshScheduler {
+
+	/**
+	 * The window in milliseconds during which changes are collected before the
+	 * network map is signed again.
+	 */
+	private static final long REFRESH_WINDOW_MILLIS = Long.getLong("corda.networkmap.refresh.window", 1000L);
+
+	/**
+	 * The number of pending changes that triggers a refresh before the window
+	 * expires.
+	 */
+	private static final int MAX_PENDING_CHANGES = Integer.getInteger("corda.networkmap.refresh.maxPendingChanges",
+			500);
+
+	private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "network-map-refresh");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private final AtomicInteger pendingChanges = new AtomicInteger();
+	private final AtomicBoolean scheduled = new AtomicBoolean();
+
+	/**
+	 * Records one change and makes sure a refresh will pick it up.
+	 */
+	public void markChanged() {
+		if (pendingChanges.incrementAndGet() >= MAX_PENDING_CHANGES) {
+			executor.execute(this::refresh);
+		} else if (scheduled.compareAndSet(false, true)) {
+			executor.schedule(this::refresh, REFRESH_WINDOW_MILLIS, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Signs the network map immediately if any change is pending and waits until
+	 * it is done.
+	 */
+	public void flush() {
+		try {
+			executor.submit(this::refresh).get();
+		} catch (InterruptedException e) {
+			LOGGER.warn("Interrupted while waiting for the network map to be refreshed.", e);
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			LOGGER.error("Unexpected exception occurs.", e);
+		}
+	}
+
+	private void refresh() {
+		scheduled.set(false);
+		int changes = pendingChanges.getAndSet(0);
+
+		if (changes == 0) {
+			return;
+		}
+
+		LOGGER.debug("Refresh the network map for [{}] pending changes.", changes);
+		NetworkMapManager.getInstance().refreshNetworkMap();
+	}
+
+	public void destroy() {
+		flush();
+		executor.shutdown();
+	}
+
+	private static final Logger LOGGER = LoggerFactory.getLogger("cordaNetworkMapLogger");
+
+	private NetworkMapRefreshScheduler() {
+	}
+
+	public static NetworkMapRefreshScheduler getInstance() {
+		return SingletonHelper.INSTANCE;
+	}
+
+	private static class SingletonHelper {
+		private static final NetworkMapRefreshScheduler INSTANCE = new NetworkMapRefreshScheduler();
+	}
+}
@@ -0,0 +1,67 @@
+package com.patrick.corda.networkmap.core;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+
+import net.corda.core.crypto.SecureHash;
+
+/**
+ * One published version of the network map. Instances are immutable and
+ * replaced as a whole, so a reader which has picked one up sees a version, hash
+ * list and signed bytes which belong together without taking any lock.
+ *
+ * @author Patrick Pan
+ *
+ */
+public class NetworkMapSnapshot {
+
+	private final long version;
+	private final List<SecureHash> nodeInfoHashes;
+	private final SignedArtifact signedArtifact;
+	private final Instant timestamp;
+
+	NetworkMapSnapshot(long version, List<SecureHash> nodeInfoHashes, SignedArtifact signedArtifact,
+			Instant timestamp) {
+		this.version = version;
+		this.nodeInfoHashes = Collections.unmodifiableList(nodeInfoHashes);
+		this.signedArtifact = signedArtifact;
+		this.timestamp = timestamp;
+	}
+
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * @return the node info hashes the network map advertises
+	 */
+	public List<SecureHash> getNodeInfoHashes() {
+		return nodeInfoHashes;
+	}
+
+	public SignedArtifact getSignedArtifact() {
+		return signedArtifact;
+	}
+
+	/**
+	 * The serialized "SignedDataWithCert<NetworkMap>" object. It must not be
+	 * modified.
+	 *
+	 * @return
+	 */
+	public byte[] getSignedNetworkMapByteArray() {
+		return signedArtifact.getByteArray();
+	}
+
+	public String getETag() {
+		return signedArtifact.getETag();
+	}
+
+	/**
+	 * @return when the network map was published, or loaded after a restart
+	 */
+	public Instant getTimestamp() {
+		return timestamp;
+	}
+}
@@ -0,0 +1,179 @@
+package com.patrick.corda.networkmap.core;
+
+import java.io.IOException;
+import java.security.PublicKey;
+import java.security.SignatureException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.corda.core.crypto.SecureHash;
+import net.corda.core.crypto.SignedData;
+import net.corda.core.identity.CordaX500Name;
+
+/**
+ * Records which nodes have accepted which network parameters. Every version
+ * keeps the set of nodes which accepted it together with their number, so the
+ * number of acceptances is read without walking the set or taking a lock.
+ * Acceptances are kept in the store, so they survive a restart.
+ *
+ * @author Patrick Pan
+ *
+ */
+public class NetworkParametersAckManager {
+
+	private final ConcurrentMap<SecureHash, Acceptance> acceptances = new ConcurrentHashMap<>();
+
+	private final NetworkParametersStore store;
+
+	private NetworkParametersAckManager() {
+		this(NetworkParametersStore.getInstance());
+	}
+
+	NetworkParametersAckManager(NetworkParametersStore store) {
+		this.store = store;
+		loadStoredAcceptances();
+	}
+
+	private void loadStoredAcceptances() {
+		Map<String, List<String>> storedAcceptances;
+
+		try {
+			storedAcceptances = store.loadAcceptances();
+		} catch (IOException e) {
+			LOGGER.error("Fail to load the stored acceptances of the network parameters.", e);
+			return;
+		}
+
+		storedAcceptances.forEach((hash, names) -> {
+			try {
+				Acceptance acceptance = acceptances.computeIfAbsent(SecureHash.parse(hash), key -> new Acceptance());
+
+				for (String name : names) {
+					if (!name.trim().isEmpty() && acceptance.names.add(CordaX500Name.parse(name.trim()))) {
+						acceptance.count.incrementAndGet();
+					}
+				}
+			} catch (IllegalArgumentException e) {
+				LOGGER.warn(String.format("The stored acceptances of the network parameters [%s] are ignored.", hash),
+						e);
+			}
+		});
+	}
+
+	/**
+	 * @param signedParametersHash the hash of the accepted network parameters
+	 *                             signed with the key of the first legal identity
+	 *                             of the node
+	 * @return the node which accepted them
+	 * @throws SignatureException       if the signature is invalid
+	 * @throws IllegalArgumentException if the node is not registered or the
+	 *                                  network parameters are neither current
+	 *                                  nor staged
+	 */
+	public CordaX500Name acknowledge(SignedData<SecureHash> signedParametersHash) throws SignatureException {
+		SecureHash hash = signedParametersHash.verified();
+		PublicKey publicKey = signedParametersHash.getSig().getBy();
+		CordaX500Name name = NodeInfoHashManager.getInstance().getLegalName(publicKey);
+
+		if (name == null) {
+			throw new IllegalArgumentException("The network parameters are accepted by a node not registered.");
+		}
+
+		NetworkParametersManager networkParametersManager = NetworkParametersManager.getInstance();
+
+		if (!hash.equals(networkParametersManager.getSignedNetworkParametersHash())
+				&& !hash.equals(networkParametersManager.getStagedNetworkParametersHash())) {
+			throw new IllegalArgumentException(String.format(
+					"[%s] accepts the network parameters [%s] which are neither current nor staged.", name, hash));
+		}
+
+		if (acknowledge(hash, name)) {
+			LOGGER.info("[{}] accepts the network parameters [{}].", name, hash);
+		}
+
+		return name;
+	}
+
+	/**
+	 * @param hash
+	 * @param name
+	 * @return false if the node has accepted them before
+	 */
+	boolean acknowledge(SecureHash hash, CordaX500Name name) {
+		Acceptance acceptance = acceptances.computeIfAbsent(hash, key -> new Acceptance());
+
+		if (!acceptance.names.add(name)) {
+			return false;
+		}
+
+		acceptance.count.incrementAndGet();
+
+		try {
+			store.saveAcceptance(hash.toString(), name.toString());
+		} catch (IOException e) {
+			LOGGER.error("Fail to store the acceptance of the network parameters.", e);
+		}
+
+		return true;
+	}
+
+	/**
+	 * @param hash
+	 * @return the number of nodes which have accepted the network parameters
+	 */
+	public int getAcceptanceCount(SecureHash hash) {
+		Acceptance acceptance = acceptances.get(hash);
+		return acceptance == null ? 0 : acceptance.count.get();
+	}
+
+	/**
+	 * @return the number of acceptances of every network parameters hash accepted
+	 *         at least once
+	 */
+	public Map<SecureHash, Integer> getAcceptanceCounts() {
+		Map<SecureHash, Integer> acceptanceCounts = new LinkedHashMap<>();
+		acceptances.forEach((hash, acceptance) -> acceptanceCounts.put(hash, acceptance.count.get()));
+		return acceptanceCounts;
+	}
+
+	/**
+	 * @param hash
+	 * @return the registered nodes which have not accepted the network parameters
+	 */
+	public List<CordaX500Name> getNodesNotAccepted(SecureHash hash) {
+		Acceptance acceptance = acceptances.get(hash);
+		List<CordaX500Name> nodesNotAccepted = new ArrayList<>();
+
+		for (CordaX500Name name : NodeInfoHashManager.getInstance().getNodeNames()) {
+			if (acceptance == null || !acceptance.names.contains(name)) {
+				nodesNotAccepted.add(name);
+			}
+		}
+
+		return nodesNotAccepted;
+	}
+
+	private static class Acceptance {
+		private final Set<CordaX500Name> names = ConcurrentHashMap.newKeySet();
+		private final AtomicInteger count = new AtomicInteger();
+	}
+
+	private static final Logger LOGGER = LoggerFactory.getLogger("cordaNetworkMapLogger");
+
+	public static NetworkParametersAckManager getInstance() {
+		return SingletonHelper.INSTANCE;
+	}
+
+	private static class SingletonHelper {
+		private static final NetworkParametersAckManager INSTANCE = new NetworkParametersAckManager();
+	}
+}
@@ -2,12 +2,22 @@ package com.patrick.corda.networkmap.core;
 
 import static com.patrick.corda.networkmap.Utils.signData;
 
+import java.io.IOException;
 import java.security.InvalidKeyException;
 import java.security.SignatureException;
+import java.security.cert.X509Certificate;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -17,18 +27,68 @@ import net.corda.core.internal.SignedDataWithCert;
 import net.corda.core.node.NetworkParameters;
 import net.corda.core.node.NotaryInfo;
 import net.corda.core.serialization.SerializedBytes;
+import net.corda.nodeapi.internal.network.ParametersUpdate;
 
 /**
- * 
+ *
  * @author Patrick Pan
  *
  */
 public class NetworkParametersManager {
 
-	private byte[] signedNetworkParametersByteArray;
-	private SecureHash signedNetworkParametersHash;
+	/**
+	 * This is currently ignored by nodes. However, it will be wired up in a future
+	 * release according to Corda documents. The network map applies it to the
+	 * bodies it accepts.
+	 */
+	private static final int MAX_MESSAGE_SIZE = 10485760;
+
+	/**
+	 * How long in milliseconds nodes are given to accept new network parameters
+	 * before they replace the current ones.
+	 */
+	private static final long UPDATE_DELAY_MILLIS = Long.getLong("corda.networkmap.parameters.updateDelay",
+			86400000L);
+
+	/**
+	 * Every version ever signed by hash, including those signed before the last
+	 * restart. Versions are only added, so a hash once announced can always be
+	 * served.
+	 */
+	private final ConcurrentMap<SecureHash, NetworkParametersVersion> versions = new ConcurrentHashMap<>();
+
+	private final NetworkParametersStore store;
+
+	/**
+	 * Nodes shut down when the network map refers to parameters they do not have,
+	 * so changed parameters are staged and announced through a "ParametersUpdate"
+	 * first, and only become current at the deadline of the update.
+	 *
+	 * <p>
+	 * Both are taken from "versions" and are replaced, never modified.
+	 * </p>
+	 */
+	private volatile NetworkParametersVersion currentVersion;
+	private volatile NetworkParametersVersion stagedVersion;
+	private volatile ParametersUpdate parametersUpdate;
+
+	private final ScheduledExecutorService flagDayExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "network-parameters-flag-day");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private ScheduledFuture<?> flagDay;
+
+	private final List<DirectoryWatcher> directoryWatchers = new CopyOnWriteArrayList<>();
 
 	private NetworkParametersManager() {
+		this(NetworkParametersStore.getInstance());
+	}
+
+	NetworkParametersManager(NetworkParametersStore store) {
+		this.store = store;
+
 		try {
 			init();
 		} catch (InvalidKeyException | SignatureException e) {
@@ -39,8 +99,186 @@ public class NetworkParametersManager {
 	}
 
 	private void init() throws InvalidKeyException, SignatureException {
-		NetworkParameters networkParameters = buildNetworkParameters();
+		loadStoredVersions();
+		NetworkParametersVersion storedCurrentVersion = loadStoredCurrentVersion();
+
+		if (storedCurrentVersion == null) {
+			currentVersion = addVersion(buildNetworkParameters(getNextEpoch()));
+			saveCurrentHash(currentVersion);
+			return;
+		}
 
+		/**
+		 * Nodes keep the parameters they already have across a restart of the network
+		 * map. Changes made while it was down are rolled out like any other.
+		 */
+		currentVersion = storedCurrentVersion;
+		LOGGER.info("The network parameters [{}] signed before the restart are current.",
+				storedCurrentVersion.getHash());
+		restoreStagedVersion();
+		stageNetworkParameters("The network parameters have changed while the network map was down.");
+	}
+
+	private void loadStoredVersions() {
+		Map<String, byte[]> storedByteArrays;
+
+		try {
+			storedByteArrays = store.load();
+		} catch (IOException e) {
+			LOGGER.error("Fail to load the stored network parameters.", e);
+			return;
+		}
+
+		X509Certificate networkMapCertificate = NetworkMapCertificateManager.getInstance()
+				.getNetworkMapCertificateAndKeyPair().getCertificate();
+
+		storedByteArrays.forEach((hash, byteArray) -> {
+			try {
+				NetworkParametersVersion version = verifyStoredVersion(byteArray, networkMapCertificate);
+
+				if (version.getHash().toString().equals(hash)) {
+					versions.put(version.getHash(), version);
+				} else {
+					LOGGER.warn("The stored network parameters [{}] have another hash and are ignored.", hash);
+				}
+			} catch (Exception e) {
+				LOGGER.warn(String.format("The stored network parameters [%s] are ignored.", hash), e);
+			}
+		});
+
+		LOGGER.info("[{}] stored versions of the network parameters are loaded.", versions.size());
+	}
+
+	/**
+	 * @throws IllegalArgumentException if the network parameters are not signed by
+	 *                                  this network map
+	 */
+	private NetworkParametersVersion verifyStoredVersion(byte[] byteArray, X509Certificate networkMapCertificate) {
+		@SuppressWarnings("unchecked")
+		SignedDataWithCert<NetworkParameters> signedNetworkParameters = SerializationEnvironmentManager.getInstance()
+				.deserializeObjectOnContext(SignedDataWithCert.class, byteArray);
+
+		if (!networkMapCertificate.equals(signedNetworkParameters.getSig().getBy())) {
+			throw new IllegalArgumentException("The network parameters are signed by another network map.");
+		}
+
+		NetworkParameters networkParameters = signedNetworkParameters.verified();
+		SecureHash hash = signedNetworkParameters.getRaw().getHash();
+		return new NetworkParametersVersion(networkParameters, hash,
+				SignedArtifact.newCompressedInstance(byteArray, hash));
+	}
+
+	private NetworkParametersVersion loadStoredCurrentVersion() {
+		try {
+			String hash = store.loadCurrentHash();
+			return hash == null ? null : versions.get(SecureHash.parse(hash));
+		} catch (IOException | IllegalArgumentException e) {
+			LOGGER.error("Fail to load the hash of the current network parameters.", e);
+			return null;
+		}
+	}
+
+	/**
+	 * Announces the version staged before the restart again with the same deadline,
+	 * so nodes which have accepted it do not need to accept another one. The flag
+	 * day comes at once if the deadline passed while the network map was down.
+	 */
+	private synchronized void restoreStagedVersion() {
+		ParametersUpdate storedParametersUpdate;
+
+		try {
+			storedParametersUpdate = store.loadParametersUpdate();
+		} catch (IOException | IllegalArgumentException e) {
+			LOGGER.error("Fail to load the update of the staged network parameters.", e);
+			return;
+		}
+
+		if (storedParametersUpdate == null) {
+			return;
+		}
+
+		NetworkParametersVersion version = versions.get(storedParametersUpdate.getNewParametersHash());
+
+		if (version == null || version == currentVersion) {
+			LOGGER.warn("The staged network parameters [{}] are unknown or current, so they are not announced.",
+					storedParametersUpdate.getNewParametersHash());
+			deleteParametersUpdate();
+			return;
+		}
+
+		stagedVersion = version;
+		parametersUpdate = storedParametersUpdate;
+		scheduleFlagDay(version, storedParametersUpdate.getUpdateDeadline());
+		LOGGER.info("The network parameters [{}] staged before the restart are staged until [{}].", version.getHash(),
+				storedParametersUpdate.getUpdateDeadline());
+	}
+
+	private void saveCurrentHash(NetworkParametersVersion version) {
+		try {
+			store.saveCurrentHash(version.getHash().toString());
+		} catch (IOException e) {
+			LOGGER.error("Fail to store the hash of the current network parameters.", e);
+		}
+	}
+
+	private void saveParametersUpdate(ParametersUpdate update) {
+		try {
+			store.saveParametersUpdate(update);
+		} catch (IOException e) {
+			LOGGER.error("Fail to store the update of the staged network parameters.", e);
+		}
+	}
+
+	private void deleteParametersUpdate() {
+		try {
+			store.deleteParametersUpdate();
+		} catch (IOException e) {
+			LOGGER.error("Fail to delete the update of the staged network parameters.", e);
+		}
+	}
+
+	private int getNextEpoch() {
+		return versions.values().stream().mapToInt(version -> version.getNetworkParameters().getEpoch()).max()
+				.orElse(0) + 1;
+	}
+
+	/**
+	 * Signs the network parameters and keeps them together with their serialized
+	 * form, both in memory and in the store.
+	 */
+	private NetworkParametersVersion addVersion(NetworkParameters networkParameters)
+			throws InvalidKeyException, SignatureException {
+		NetworkParametersVersion version = signNetworkParameters(networkParameters);
+		versions.put(version.getHash(), version);
+
+		try {
+			store.save(version.getHash().toString(), version.getSignedArtifact().getByteArray());
+		} catch (IOException e) {
+			LOGGER.error("Fail to store the network parameters.", e);
+		}
+
+		return version;
+	}
+
+	/**
+	 * @return the latest signed version if it was signed after the current one and
+	 *         has the same content, or null
+	 */
+	private NetworkParametersVersion findSignedVersion(NetworkParameters networkParameters) {
+		NetworkParametersVersion latestVersion = versions.values().stream()
+				.max(Comparator.comparingInt(version -> version.getNetworkParameters().getEpoch())).orElse(null);
+		int currentEpoch = currentVersion.getNetworkParameters().getEpoch();
+
+		if (latestVersion == null || latestVersion.getNetworkParameters().getEpoch() <= currentEpoch
+				|| !hasSameContent(networkParameters, latestVersion.getNetworkParameters())) {
+			return null;
+		}
+
+		return latestVersion;
+	}
+
+	private NetworkParametersVersion signNetworkParameters(NetworkParameters networkParameters)
+			throws InvalidKeyException, SignatureException {
 		/**
 		 * @see the 17th line of NetworkMap.kt
 		 * @see the 20th line of NetworkParametersCopier.kt
@@ -51,12 +289,17 @@ public class NetworkParametersManager {
 		/**
 		 * @see the 112th line of io/cordite/networkmap/service/ServiceStorages.kt
 		 */
-		signedNetworkParametersHash = signedNetworkParameters.getRaw().getHash();
+		SecureHash signedNetworkParametersHash = signedNetworkParameters.getRaw().getHash();
 
 		/**
 		 * @see the 339th line of io/cordite/networkmap/service/NetworkMapService.kt
 		 */
-		signedNetworkParametersByteArray = serializeSignedNetworkParameters(signedNetworkParameters).getBytes();
+		byte[] signedNetworkParametersByteArray = serializeSignedNetworkParameters(signedNetworkParameters).getBytes();
+		SignedArtifact signedNetworkParametersArtifact = SignedArtifact
+				.newCompressedInstance(signedNetworkParametersByteArray, signedNetworkParametersHash);
+
+		return new NetworkParametersVersion(networkParameters, signedNetworkParametersHash,
+				signedNetworkParametersArtifact);
 	}
 
 	private SerializedBytes<SignedDataWithCert<NetworkParameters>> serializeSignedNetworkParameters(
@@ -69,18 +312,13 @@ public class NetworkParametersManager {
 		return signData(networkParameters);
 	}
 
-	private NetworkParameters buildNetworkParameters() {
+	private NetworkParameters buildNetworkParameters(int epoch) {
 		int minimumPlatformVersion = 3;
 		List<NotaryInfo> notaries = NotaryManager.getInstance().getNotaryInfoList();
 
-		/**
-		 * This is currently ignored. However, it will be wired up in a future release
-		 * according to Corda documents.
-		 */
-		int maxMessageSize = 10485760;
+		int maxMessageSize = MAX_MESSAGE_SIZE;
 		int maxTransactionSize = Integer.MAX_VALUE;
 		Instant modifiedTime = Instant.now();
-		int epoch = 1;
 		Map<String, List<SecureHash>> whitelistedContractImplementations = WhitelistedContractImplManager.getInstance()
 				.getWhitelistedContractImplementations();
 		Duration eventHorizon = Duration.ofDays(30);
@@ -89,12 +327,175 @@ public class NetworkParametersManager {
 				epoch, whitelistedContractImplementations, eventHorizon);
 	}
 
-	public byte[] getSignedNetworkByteArray() {
-		return signedNetworkParametersByteArray;
+	/**
+	 * @param description shown to node operators
+	 * @return false if nothing has changed since the latest version
+	 * @see #stageNetworkParameters(String, Instant)
+	 */
+	public boolean stageNetworkParameters(String description) {
+		return stageNetworkParameters(description, Instant.now().plusMillis(UPDATE_DELAY_MILLIS));
+	}
+
+	/**
+	 * Signs network parameters built from the current notaries and whitelist with
+	 * the next epoch, and announces them in the network map until the flag day,
+	 * when they become current. A version staged before is superseded together
+	 * with its flag day. A version signed before with the same content, such as
+	 * one staged before a restart whose update was lost, is staged again rather
+	 * than signed with another epoch.
+	 *
+	 * @param description    shown to node operators
+	 * @param updateDeadline the flag day
+	 * @return false if nothing has changed since the latest version
+	 */
+	public synchronized boolean stageNetworkParameters(String description, Instant updateDeadline) {
+		NetworkParametersVersion latestVersion = stagedVersion == null ? currentVersion : stagedVersion;
+
+		if (latestVersion == null) {
+			LOGGER.error("The network parameters could not be built, so no update can be staged.");
+			return false;
+		}
+
+		NetworkParameters latestNetworkParameters = latestVersion.getNetworkParameters();
+		NetworkParameters networkParameters = buildNetworkParameters(getNextEpoch());
+
+		if (hasSameContent(networkParameters, latestNetworkParameters)) {
+			LOGGER.info("The network parameters have not changed.");
+			return false;
+		}
+
+		try {
+			NetworkParametersVersion signedVersion = findSignedVersion(networkParameters);
+			NetworkParametersVersion version = signedVersion == null ? addVersion(networkParameters) : signedVersion;
+
+			stagedVersion = version;
+			parametersUpdate = new ParametersUpdate(version.getHash(), description, updateDeadline);
+			saveParametersUpdate(parametersUpdate);
+			scheduleFlagDay(version, updateDeadline);
+			LOGGER.info("The network parameters [{}] of epoch [{}] are staged until [{}].", version.getHash(),
+					version.getNetworkParameters().getEpoch(), updateDeadline);
+		} catch (InvalidKeyException | SignatureException e) {
+			LOGGER.error("This exception should not occur.", e);
+			return false;
+		}
+
+		NetworkMapRefreshScheduler.getInstance().markChanged();
+		return true;
+	}
+
+	private void scheduleFlagDay(NetworkParametersVersion version, Instant updateDeadline) {
+		if (flagDay != null) {
+			flagDay.cancel(false);
+		}
+
+		long delayMillis = Math.max(0, Duration.between(Instant.now(), updateDeadline).toMillis());
+		flagDay = flagDayExecutor.schedule(() -> activate(version), delayMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * @return true if the network parameters differ at most in their epoch and
+	 *         modification time
+	 */
+	private boolean hasSameContent(NetworkParameters networkParameters, NetworkParameters other) {
+		return networkParameters.getMinimumPlatformVersion() == other.getMinimumPlatformVersion()
+				&& networkParameters.getNotaries().equals(other.getNotaries())
+				&& networkParameters.getMaxMessageSize() == other.getMaxMessageSize()
+				&& networkParameters.getMaxTransactionSize() == other.getMaxTransactionSize()
+				&& networkParameters.getWhitelistedContractImplementations()
+						.equals(other.getWhitelistedContractImplementations())
+				&& networkParameters.getEventHorizon().equals(other.getEventHorizon());
+	}
+
+	private synchronized void activate(NetworkParametersVersion version) {
+		if (stagedVersion != version) {
+			return;
+		}
+
+		currentVersion = version;
+		parametersUpdate = null;
+		stagedVersion = null;
+		flagDay = null;
+		saveCurrentHash(version);
+		deleteParametersUpdate();
+
+		LOGGER.info("The network parameters [{}] have become current.", version.getHash());
+		NetworkMapRefreshScheduler.getInstance().markChanged();
+	}
+
+	/**
+	 * Stages new network parameters whenever a CorDapp jar or a notary key store
+	 * is added, replaced or removed.
+	 */
+	public void startWatching() {
+		try {
+			addDirectoryWatcher(WhitelistedContractImplManager.getInstance()
+					.watch(() -> stageNetworkParameters("The whitelisted contract implementations have changed.")));
+		} catch (IOException e) {
+			LOGGER.error("Fail to watch the CorDapps.", e);
+		}
+
+		try {
+			addDirectoryWatcher(
+					NotaryManager.getInstance().watch(() -> stageNetworkParameters("The notaries have changed.")));
+		} catch (IOException e) {
+			LOGGER.error("Fail to watch the notaries.", e);
+		}
+	}
+
+	private void addDirectoryWatcher(DirectoryWatcher directoryWatcher) {
+		if (directoryWatcher != null) {
+			directoryWatchers.add(directoryWatcher);
+		}
+	}
+
+	public void destroy() {
+		for (DirectoryWatcher directoryWatcher : directoryWatchers) {
+			try {
+				directoryWatcher.close();
+			} catch (IOException e) {
+				LOGGER.warn("Fail to stop watching a directory.", e);
+			}
+		}
+
+		directoryWatchers.clear();
+		flagDayExecutor.shutdownNow();
+	}
+
+	public SignedArtifact getSignedNetworkParametersArtifact() {
+		return currentVersion.getSignedArtifact();
+	}
+
+	/**
+	 * @param hash
+	 * @return the network parameters with this hash, whether they are current,
+	 *         staged or superseded, or null if they were never signed
+	 */
+	public SignedArtifact getSignedNetworkParametersArtifact(SecureHash hash) {
+		NetworkParametersVersion version = versions.get(hash);
+		return version == null ? null : version.getSignedArtifact();
+	}
+
+	/**
+	 * @return the hash of the staged network parameters, or null
+	 */
+	public SecureHash getStagedNetworkParametersHash() {
+		NetworkParametersVersion version = stagedVersion;
+		return version == null ? null : version.getHash();
+	}
+
+	/**
+	 * @return the update announcing the staged network parameters, or null
+	 */
+	public ParametersUpdate getParametersUpdate() {
+		return parametersUpdate;
+	}
+
+	public int getMaxMessageSize() {
+		return MAX_MESSAGE_SIZE;
 	}
 
 	public SecureHash getSignedNetworkParametersHash() {
-		return signedNetworkParametersHash;
+		return currentVersion.getHash();
 	}
 
 	private static final Logger LOGGER = LoggerFactory.getLogger("cordaNetworkMapLogger");
@@ -0,0 +1,193 @@
+package com.patrick.corda.networkmap.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.corda.core.crypto.SecureHash;
+import net.corda.nodeapi.internal.network.ParametersUpdate;
+
+/**
+ * Keeps every signed version of the network parameters in a file named after
+ * its hash, so a version stays available by hash across restarts, and records
+ * which version is current, which one is staged and which nodes have accepted
+ * each version.
+ *
+ * @author Patrick Pan
+ *
+ */
+public class NetworkParametersStore {
+
+	private static final String VERSIONS = "network-parameters";
+	private static final String VERSION_SUFFIX = ".signed";
+	private static final String ACCEPTANCE_SUFFIX = ".accepted";
+	private static final String CURRENT = "network-parameters.current";
+	private static final String STAGED = "network-parameters.staged";
+	private static final String TEMPORARY_SUFFIX = ".tmp";
+
+	private final File directory;
+	private final File versionDirectory;
+
+	NetworkParametersStore(File directory) {
+		this.directory = directory;
+		this.versionDirectory = new File(directory, VERSIONS);
+
+		if (!versionDirectory.isDirectory() && !versionDirectory.mkdirs()) {
+			LOGGER.error("Fail to create the storage directory [{}].", versionDirectory.getAbsolutePath());
+		}
+	}
+
+	/**
+	 * @return the serialized "SignedDataWithCert<NetworkParameters>" objects keyed
+	 *         by hash
+	 * @throws IOException
+	 */
+	public Map<String, byte[]> load() throws IOException {
+		Map<String, byte[]> versions = new LinkedHashMap<>();
+		File[] files = versionDirectory.listFiles(file -> file.isFile() && file.getName().endsWith(VERSION_SUFFIX));
+
+		if (files == null) {
+			return versions;
+		}
+
+		for (File file : files) {
+			String hash = file.getName().substring(0, file.getName().length() - VERSION_SUFFIX.length());
+			versions.put(hash, Files.readAllBytes(file.toPath()));
+		}
+
+		return versions;
+	}
+
+	/**
+	 * A version never changes, so it is not written again once stored.
+	 *
+	 * @param hash
+	 * @param signedNetworkParametersByteArray
+	 * @throws IOException
+	 */
+	public void save(String hash, byte[] signedNetworkParametersByteArray) throws IOException {
+		File file = new File(versionDirectory, hash + VERSION_SUFFIX);
+
+		if (!file.isFile()) {
+			write(file, signedNetworkParametersByteArray);
+		}
+	}
+
+	/**
+	 * @return the hash of the current version, or null
+	 * @throws IOException
+	 */
+	public String loadCurrentHash() throws IOException {
+		File file = new File(directory, CURRENT);
+		return file.isFile() ? new String(Files.readAllBytes(file.toPath()), StandardCharsets.US_ASCII).trim() : null;
+	}
+
+	public void saveCurrentHash(String hash) throws IOException {
+		write(new File(directory, CURRENT), hash.getBytes(StandardCharsets.US_ASCII));
+	}
+
+	/**
+	 * @return the update announcing the staged version, or null
+	 * @throws IOException
+	 * @throws IllegalArgumentException if the stored update is malformed
+	 */
+	public ParametersUpdate loadParametersUpdate() throws IOException {
+		File file = new File(directory, STAGED);
+
+		if (!file.isFile()) {
+			return null;
+		}
+
+		/**
+		 * The hash, the deadline in milliseconds since the epoch and the description,
+		 * which may span several lines.
+		 */
+		String[] fields = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8).split("\\R", 3);
+
+		if (fields.length < 2) {
+			throw new IllegalArgumentException("The stored update of the network parameters is malformed.");
+		}
+
+		return new ParametersUpdate(SecureHash.parse(fields[0].trim()), fields.length == 3 ? fields[2] : "",
+				Instant.ofEpochMilli(Long.parseLong(fields[1].trim())));
+	}
+
+	public void saveParametersUpdate(ParametersUpdate parametersUpdate) throws IOException {
+		String content = parametersUpdate.getNewParametersHash() + "\n"
+				+ parametersUpdate.getUpdateDeadline().toEpochMilli() + "\n" + parametersUpdate.getDescription();
+		write(new File(directory, STAGED), content.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Called once the staged version has become current.
+	 *
+	 * @throws IOException
+	 */
+	public void deleteParametersUpdate() throws IOException {
+		Files.deleteIfExists(new File(directory, STAGED).toPath());
+	}
+
+	/**
+	 * @return the names of the nodes which have accepted a version keyed by its
+	 *         hash, in the order they accepted it
+	 * @throws IOException
+	 */
+	public Map<String, List<String>> loadAcceptances() throws IOException {
+		Map<String, List<String>> acceptances = new LinkedHashMap<>();
+		File[] files = versionDirectory
+				.listFiles(file -> file.isFile() && file.getName().endsWith(ACCEPTANCE_SUFFIX));
+
+		if (files == null) {
+			return acceptances;
+		}
+
+		for (File file : files) {
+			String hash = file.getName().substring(0, file.getName().length() - ACCEPTANCE_SUFFIX.length());
+			acceptances.put(hash, Files.readAllLines(file.toPath(), StandardCharsets.UTF_8));
+		}
+
+		return acceptances;
+	}
+
+	/**
+	 * Appends the name, so recording an acceptance does not rewrite those recorded
+	 * before.
+	 *
+	 * @param hash
+	 * @param name
+	 * @throws IOException
+	 */
+	public synchronized void saveAcceptance(String hash, String name) throws IOException {
+		Files.write(new File(versionDirectory, hash + ACCEPTANCE_SUFFIX).toPath(),
+				(name + System.lineSeparator()).getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE,
+				StandardOpenOption.APPEND);
+	}
+
+	private void write(File file, byte[] byteArray) throws IOException {
+		File temporaryFile = new File(file.getParentFile(), file.getName() + TEMPORARY_SUFFIX);
+		Files.write(temporaryFile.toPath(), byteArray);
+		Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE,
+				StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	private static final Logger LOGGER = LoggerFactory.getLogger("cordaNetworkMapLogger");
+
+	public static NetworkParametersStore getInstance() {
+		return SingletonHelper.INSTANCE;
+	}
+
+	private static class SingletonHelper {
+		private static final NetworkParametersStore INSTANCE = new NetworkParametersStore(
+				new File(NodeInfoStore.STORAGE_DIRECTORY));
+	}
+}
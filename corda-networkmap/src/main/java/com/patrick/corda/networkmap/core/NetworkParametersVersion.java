@@ -0,0 +1,37 @@
+package com.patrick.corda.networkmap.core;
+
+import net.corda.core.crypto.SecureHash;
+import net.corda.core.node.NetworkParameters;
+
+/**
+ * One signed version of the network parameters together with the bytes served
+ * for it. Instances are immutable, so a request which has picked one up keeps
+ * serving it even if another version is published meanwhile.
+ *
+ * @author Patrick Pan
+ *
+ */
+public class NetworkParametersVersion {
+
+	private final NetworkParameters networkParameters;
+	private final SecureHash hash;
+	private final SignedArtifact signedArtifact;
+
+	NetworkParametersVersion(NetworkParameters networkParameters, SecureHash hash, SignedArtifact signedArtifact) {
+		this.networkParameters = networkParameters;
+		this.hash = hash;
+		this.signedArtifact = signedArtifact;
+	}
+
+	public NetworkParameters getNetworkParameters() {
+		return networkParameters;
+	}
+
+	public SecureHash getHash() {
+		return hash;
+	}
+
+	public SignedArtifact getSignedArtifact() {
+		return signedArtifact;
+	}
+}
@@ -1,26 +1,31 @@
 package com.patrick.corda.networkmap.core;
 
+import java.io.IOException;
 import java.security.PublicKey;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.util.concurrent.Uninterruptibles;
+
 import net.corda.core.crypto.SecureHash;
-import net.corda.core.crypto.SecureHash.SHA256;
 import net.corda.core.identity.CordaX500Name;
 import net.corda.core.identity.PartyAndCertificate;
 import net.corda.core.node.NodeInfo;
-import net.corda.core.serialization.SerializedBytes;
 import net.corda.nodeapi.internal.SignedNodeInfo;
-import net.corda.nodeapi.internal.crypto.CertificateAndKeyPair;
-import net.corda.nodeapi.internal.crypto.X509Utilities;
 
 /**
  * 
@@ -32,78 +37,335 @@ public class NodeInfoHashManager {
 	private static final Lock LOCK = new ReentrantLock();
 	private static final Logger LOGGER = LoggerFactory.getLogger("cordaNetworkMapLogger");
 
-	private ConcurrentMap<String, SignedNodeInfo> map = new ConcurrentHashMap<>();
+	private ConcurrentMap<String, RegisteredNode> map = new ConcurrentHashMap<>();
 
-	public void addNode(SignedNodeInfo signedNodeInfo) throws DuplicateCordaX500NameException {
-		NodeInfo nodeInfo = signedNodeInfo.verified();
-		validateNodeInfoCertificate(nodeInfo);
-		List<PartyAndCertificate> partyAndCertificateList = nodeInfo.getLegalIdentitiesAndCerts();
+	/**
+	 * Index of every registered legal identity, kept in step with "map" under
+	 * LOCK. "owningKeys" enforces the duplicate name rule with one lookup per
+	 * identity and "owners" tells which entries of "map" advertise the name. A
+	 * name has several owners when it is the service identity shared by the
+	 * members of a notary cluster.
+	 */
+	private Map<CordaX500Name, PublicKey> owningKeys = new HashMap<>();
+	private Map<CordaX500Name, Set<String>> owners = new HashMap<>();
+
+	/**
+	 * The reverse of "owningKeys", also written under LOCK but read without it, so
+	 * the node which signed something can be found with one lookup.
+	 */
+	private ConcurrentMap<PublicKey, CordaX500Name> legalNames = new ConcurrentHashMap<>();
+
+	private final NodeInfoStore store;
+
+	/**
+	 * Why the store could not be loaded, in which case nothing can be registered.
+	 */
+	private IOException storeLoadFailure;
+
+	private final Timer validateTimer = MetricsRegistry.getInstance().timer(
+			"networkmap_validate_node_info_certificate_seconds",
+			"Time spent validating the certificate paths of a NodeInfo.");
+	private final Timer duplicateCheckTimer = MetricsRegistry.getInstance().timer("networkmap_duplicate_check_seconds",
+			"Time spent checking a NodeInfo for legal names registered with a different key.");
+
+	/**
+	 * Node infos read back from the store which are still being verified. They are
+	 * served and advertised as they were before the restart in the meantime.
+	 */
+	private ConcurrentMap<String, byte[]> restoredByteArrays = new ConcurrentHashMap<>();
+	private ConcurrentMap<String, SecureHash> restoredHashes = new ConcurrentHashMap<>();
+	private AtomicBoolean restoreStarted = new AtomicBoolean();
+	private volatile CountDownLatch restoreLatch = new CountDownLatch(0);
+
+	/**
+	 * Verifies the node infos loaded from the store in the background. New
+	 * publications wait until it has finished so that the duplicate name rule sees
+	 * every restored identity.
+	 *
+	 * @throws IllegalStateException if the store could not be loaded, so that the
+	 *                               network map does not start without it
+	 */
+	public void init() {
+		if (storeLoadFailure != null) {
+			throw new IllegalStateException("The NodeInfo store could not be loaded.", storeLoadFailure);
+		}
+
+		if (restoredByteArrays.isEmpty() || !restoreStarted.compareAndSet(false, true)) {
+			return;
+		}
+
+		restoreLatch = new CountDownLatch(1);
+		Thread thread = new Thread(this::restore, "node-info-restore");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	public void destroy() {
+		LOCK.lock();
+		try {
+			store.compact(getStoredByteArrays());
+			store.close();
+		} catch (IOException e) {
+			LOGGER.error("Fail to close the NodeInfo store.", e);
+		} finally {
+			LOCK.unlock();
+		}
+	}
+
+	public void addNode(byte[] signedNodeInfoByteArray) throws DuplicateCordaX500NameException, IOException {
+		addNode(RegisteredNode.newInstance(signedNodeInfoByteArray));
+	}
+
+	public void addNode(SignedNodeInfo signedNodeInfo) throws DuplicateCordaX500NameException, IOException {
+		addNode(RegisteredNode.newInstance(signedNodeInfo));
+	}
+
+	private void addNode(RegisteredNode registeredNode) throws DuplicateCordaX500NameException, IOException {
+		validateNodeInfoCertificate(registeredNode.getNodeInfo());
+		List<PartyAndCertificate> partyAndCertificateList = registeredNode.getLegalIdentitiesAndCerts();
+		String hash = registeredNode.getHashString();
+
+		Uninterruptibles.awaitUninterruptibly(restoreLatch);
+		long sequence;
 
 		LOCK.lock();
 		try {
 			checkPartyAndCertificateList(partyAndCertificateList);
+			List<String> supersededHashes = findSupersededNodes(hash, partyAndCertificateList);
 
-			SerializedBytes<NodeInfo> raw = signedNodeInfo.getRaw();
-			SHA256 sha256 = SecureHash.sha256(raw.getBytes());
-			map.put(sha256.toString(), signedNodeInfo);
-			NetworkMapManager.getInstance().refreshNetworkMap();
+			/**
+			 * Nothing changes if the new NodeInfo cannot be stored, so the node stays
+			 * registered as it was.
+			 */
+			store.append(hash, registeredNode.getSignedNodeInfoByteArray());
+			map.put(hash, registeredNode);
+			index(hash, partyAndCertificateList);
+			removeSupersededNodes(hash, supersededHashes);
+			compactStoreIfDue();
+			sequence = store.getAppendedSequence();
 		} finally {
 			LOCK.unlock();
 		}
+
+		/**
+		 * Forced outside LOCK, so registrations are not serialized behind the storage
+		 * device and concurrent ones share a force.
+		 */
+		store.sync(sequence);
+		NetworkMapRefreshScheduler.getInstance().markChanged();
 	}
 
-	public List<SecureHash> getSignedNodeInfoHashList() {
-		List<SecureHash> signedNodeInfoHashList = new ArrayList<>();
+	/**
+	 * Test hook, nodes are not deregistered in production.
+	 * 
+	 * @param hash
+	 * @throws IOException
+	 */
+	void removeNode(String hash) throws IOException {
+		boolean removed;
+
+		Uninterruptibles.awaitUninterruptibly(restoreLatch);
 
 		LOCK.lock();
 		try {
-			map.keySet().forEach(hash -> signedNodeInfoHashList.add(SecureHash.parse(hash)));
+			removed = remove(hash);
 		} finally {
 			LOCK.unlock();
 		}
 
+		if (removed) {
+			store.sync(store.getAppendedSequence());
+			NetworkMapRefreshScheduler.getInstance().markChanged();
+		}
+	}
+
+	/**
+	 * Reads the maps without LOCK and reuses the hashes parsed when the nodes were
+	 * registered or loaded. A publication running meanwhile may or may not be
+	 * seen, but it marks the network map changed once it is done, so the next
+	 * refresh always sees it.
+	 * 
+	 * @return the hashes of every registered node, including restored nodes still
+	 *         being verified
+	 */
+	public List<SecureHash> getSignedNodeInfoHashList() {
+		List<SecureHash> signedNodeInfoHashList = new ArrayList<>(map.size() + restoredHashes.size());
+		map.values().forEach(registeredNode -> signedNodeInfoHashList.add(registeredNode.getHash()));
+
+		/**
+		 * A restored node is put into "map" before it leaves "restoredHashes".
+		 */
+		restoredHashes.forEach((hashString, hash) -> {
+			if (!map.containsKey(hashString)) {
+				signedNodeInfoHashList.add(hash);
+			}
+		});
+
 		return signedNodeInfoHashList;
 	}
 
 	public SignedNodeInfo getSignedNodeInfo(String hash) {
-		return map.get(hash);
+		RegisteredNode registeredNode = map.get(hash);
+		return registeredNode == null ? null : registeredNode.getSignedNodeInfo();
+	}
+
+	public byte[] getSignedNodeInfoByteArray(String hash) {
+		RegisteredNode registeredNode = map.get(hash);
+		return registeredNode == null ? restoredByteArrays.get(hash) : registeredNode.getSignedNodeInfoByteArray();
+	}
+
+	public SignedArtifact getSignedNodeInfoArtifact(String hash) {
+		RegisteredNode registeredNode = map.get(hash);
+
+		if (registeredNode != null) {
+			return registeredNode.getSignedNodeInfoArtifact();
+		}
+
+		byte[] restoredByteArray = restoredByteArrays.get(hash);
+		SecureHash restoredHash = restoredHashes.get(hash);
+		return restoredByteArray == null || restoredHash == null ? null
+				: SignedArtifact.newInstance(restoredByteArray, restoredHash);
+	}
+
+	/**
+	 * @param owningKey
+	 * @return the registered legal identity owning the key, or null
+	 */
+	public CordaX500Name getLegalName(PublicKey owningKey) {
+		return legalNames.get(owningKey);
 	}
 
+	/**
+	 * Nodes sign with the key of their first legal identity, so that is the name
+	 * they are known by.
+	 * 
+	 * @return the name of every registered node
+	 */
+	public List<CordaX500Name> getNodeNames() {
+		List<CordaX500Name> nodeNames = new ArrayList<>(map.size());
+		map.values().forEach(registeredNode -> nodeNames.add(getFirstLegalName(registeredNode)));
+		return nodeNames;
+	}
+
+	public int getNodeCount() {
+		return map.size();
+	}
+
+	private void restore() {
+		long start = System.currentTimeMillis();
+		Map<String, RegisteredNode> registeredNodes = new ConcurrentHashMap<>();
+
+		try {
+			restoredByteArrays.entrySet().parallelStream().forEach(entry -> {
+				RegisteredNode registeredNode = verifyRestoredNode(entry.getKey(), entry.getValue());
+
+				if (registeredNode != null) {
+					registeredNodes.put(entry.getKey(), registeredNode);
+				}
+			});
+
+			LOCK.lock();
+			try {
+				for (String hash : restoredByteArrays.keySet()) {
+					RegisteredNode registeredNode = registeredNodes.get(hash);
+
+					if (registeredNode == null) {
+						store.appendRemoval(hash);
+						continue;
+					}
+
+					map.put(hash, registeredNode);
+					index(hash, registeredNode.getLegalIdentitiesAndCerts());
+				}
+
+				restoredByteArrays.clear();
+				restoredHashes.clear();
+			} finally {
+				LOCK.unlock();
+			}
+
+			store.sync(store.getAppendedSequence());
+
+			LOGGER.info("[{}] restored NodeInfo objects are verified in [{}] ms.", registeredNodes.size(),
+					System.currentTimeMillis() - start);
+		} catch (Exception e) {
+			LOGGER.error("Unexpected exception occurs.", e);
+		} finally {
+			restoreLatch.countDown();
+			NetworkMapRefreshScheduler.getInstance().markChanged();
+		}
+	}
+
+	private RegisteredNode verifyRestoredNode(String hash, byte[] signedNodeInfoByteArray) {
+		try {
+			RegisteredNode registeredNode = RegisteredNode.newInstance(signedNodeInfoByteArray);
+			validateNodeInfoCertificate(registeredNode.getNodeInfo());
+			return registeredNode;
+		} catch (Exception e) {
+			LOGGER.warn(String.format("The restored NodeInfo [%s] is no longer valid and will be dropped.", hash), e);
+			return null;
+		}
+	}
+
+	private void compactStoreIfDue() throws IOException {
+		if (store.isCompactionDue()) {
+			store.compact(getStoredByteArrays());
+		}
+	}
+
+	private Map<String, byte[]> getStoredByteArrays() {
+		Map<String, byte[]> storedByteArrays = new LinkedHashMap<>(restoredByteArrays);
+		map.forEach((hash, registeredNode) -> storedByteArrays.put(hash, registeredNode.getSignedNodeInfoByteArray()));
+		return storedByteArrays;
+	}
+
+	/**
+	 * Identities are validated in parallel when a node has several of them, e.g. a
+	 * notary cluster member. Independent publications are already validated in
+	 * parallel by {@link NodeInfoPublisher}.
+	 */
 	private void validateNodeInfoCertificate(NodeInfo nodeInfo) {
-		CertificateAndKeyPair rootCertificateAndKeyPair = NetworkMapCertificateManager.getInstance()
-				.getRootCertificateAndKeyPair();
+		long start = System.nanoTime();
+
+		try {
+			validateCertificatePaths(nodeInfo);
+		} finally {
+			validateTimer.record(System.nanoTime() - start);
+		}
+	}
 
+	private void validateCertificatePaths(NodeInfo nodeInfo) {
+		CertificatePathValidator certificatePathValidator = CertificatePathValidator.getInstance();
 		List<PartyAndCertificate> partyAndCertificateList = nodeInfo.getLegalIdentitiesAndCerts();
-		for (PartyAndCertificate partyAndCertificate : partyAndCertificateList) {
-			X509Utilities.INSTANCE.validateCertPath(rootCertificateAndKeyPair.getCertificate(),
-					partyAndCertificate.getCertPath());
+
+		if (partyAndCertificateList.size() == 1) {
+			certificatePathValidator.validate(partyAndCertificateList.get(0).getCertPath());
+			return;
 		}
+
+		partyAndCertificateList.parallelStream()
+				.forEach(partyAndCertificate -> certificatePathValidator.validate(partyAndCertificate.getCertPath()));
 	}
 
 	private void checkPartyAndCertificateList(List<PartyAndCertificate> unCheckedPartyAndCertificateList)
 			throws DuplicateCordaX500NameException {
-		Collection<SignedNodeInfo> registeredSignedNodeInfos = map.values();
-
-		for (SignedNodeInfo registeredSignedNodeInfo : registeredSignedNodeInfos) {
-			List<PartyAndCertificate> registeredPartyAndCertificateList = registeredSignedNodeInfo.verified()
-					.getLegalIdentitiesAndCerts();
+		long start = System.nanoTime();
 
-			for (PartyAndCertificate registeredPartyAndCertificate : registeredPartyAndCertificateList) {
-				checkPartyAndCertificateList(unCheckedPartyAndCertificateList, registeredPartyAndCertificate);
-			}
+		try {
+			checkLegalNames(unCheckedPartyAndCertificateList);
+		} finally {
+			duplicateCheckTimer.record(System.nanoTime() - start);
 		}
 	}
 
-	private void checkPartyAndCertificateList(List<PartyAndCertificate> unCheckedPartyAndCertificateList,
-			PartyAndCertificate registeredPartyAndCertificate) throws DuplicateCordaX500NameException {
-		CordaX500Name registeredName = registeredPartyAndCertificate.getParty().getName();
-		PublicKey registeredPublicKey = registeredPartyAndCertificate.getOwningKey();
-
+	private void checkLegalNames(List<PartyAndCertificate> unCheckedPartyAndCertificateList)
+			throws DuplicateCordaX500NameException {
 		for (PartyAndCertificate unCheckedPartyAndCertificate : unCheckedPartyAndCertificateList) {
 			CordaX500Name name = unCheckedPartyAndCertificate.getParty().getName();
 			PublicKey unCheckedPublicKey = unCheckedPartyAndCertificate.getOwningKey();
+			PublicKey registeredPublicKey = owningKeys.get(name);
 
-			if (registeredName.equals(name) && !registeredPublicKey.equals(unCheckedPublicKey)) {
+			if (registeredPublicKey != null && !registeredPublicKey.equals(unCheckedPublicKey)) {
 				String msg = String.format(
 						"Failed to register the node because name [%s] has already been registered with a different public key.",
 						name);
@@ -113,7 +375,104 @@ public class NodeInfoHashManager {
 		}
 	}
 
+	/**
+	 * A node republishes its "NodeInfo" whenever it changes, e.g. a new address or
+	 * serial. The previous entry of the same node, i.e. with the same first legal
+	 * identity, is replaced rather than advertised side by side with the new one.
+	 * Other identities never supersede anything, since the members of a notary
+	 * cluster all advertise the same service identity.
+	 * 
+	 * @param hash
+	 * @param partyAndCertificateList
+	 * @return the hashes of the previous entries of the same node
+	 */
+	private List<String> findSupersededNodes(String hash, List<PartyAndCertificate> partyAndCertificateList) {
+		CordaX500Name name = partyAndCertificateList.get(0).getParty().getName();
+		Set<String> registeredHashes = owners.get(name);
+		List<String> supersededHashes = new ArrayList<>();
+
+		if (registeredHashes == null) {
+			return supersededHashes;
+		}
+
+		for (String registeredHash : registeredHashes) {
+			if (!registeredHash.equals(hash) && name.equals(getFirstLegalName(map.get(registeredHash)))) {
+				supersededHashes.add(registeredHash);
+			}
+		}
+
+		return supersededHashes;
+	}
+
+	/**
+	 * Called once the new entry is stored and indexed, so the names it shares with
+	 * the superseded entries stay registered throughout. An entry whose removal
+	 * cannot be stored stays registered in memory as well as in the store, and is
+	 * superseded again by the next publication of the node.
+	 */
+	private void removeSupersededNodes(String hash, List<String> supersededHashes) {
+		for (String supersededHash : supersededHashes) {
+			try {
+				remove(supersededHash);
+				LOGGER.debug("NodeInfo [{}] is superseded by [{}].", supersededHash, hash);
+			} catch (IOException e) {
+				LOGGER.error(String.format("Fail to remove the superseded NodeInfo [%s].", supersededHash), e);
+			}
+		}
+	}
+
+	private static CordaX500Name getFirstLegalName(RegisteredNode registeredNode) {
+		return registeredNode == null ? null : registeredNode.getLegalIdentitiesAndCerts().get(0).getParty().getName();
+	}
+
+	private boolean remove(String hash) throws IOException {
+		if (!map.containsKey(hash)) {
+			return false;
+		}
+
+		store.appendRemoval(hash);
+		RegisteredNode registeredNode = map.remove(hash);
+
+		for (PartyAndCertificate partyAndCertificate : registeredNode.getLegalIdentitiesAndCerts()) {
+			CordaX500Name name = partyAndCertificate.getParty().getName();
+
+			Set<String> registeredHashes = owners.get(name);
+
+			if (registeredHashes != null && registeredHashes.remove(hash) && registeredHashes.isEmpty()) {
+				owners.remove(name);
+				owningKeys.remove(name);
+				legalNames.remove(partyAndCertificate.getOwningKey(), name);
+			}
+		}
+
+		return true;
+	}
+
+	private void index(String hash, List<PartyAndCertificate> partyAndCertificateList) {
+		for (PartyAndCertificate partyAndCertificate : partyAndCertificateList) {
+			CordaX500Name name = partyAndCertificate.getParty().getName();
+			owningKeys.put(name, partyAndCertificate.getOwningKey());
+			owners.computeIfAbsent(name, key -> new HashSet<>()).add(hash);
+			legalNames.put(partyAndCertificate.getOwningKey(), name);
+		}
+	}
+
 	private NodeInfoHashManager() {
+		this(NodeInfoStore.getInstance());
+		MetricsRegistry.getInstance().gauge("networkmap_registered_nodes", "The number of registered nodes.",
+				this::getNodeCount);
+	}
+
+	NodeInfoHashManager(NodeInfoStore store) {
+		this.store = store;
+
+		try {
+			restoredByteArrays.putAll(store.load());
+			restoredByteArrays.keySet().forEach(hash -> restoredHashes.put(hash, SecureHash.parse(hash)));
+		} catch (IOException e) {
+			LOGGER.error("Fail to load the NodeInfo store.", e);
+			storeLoadFailure = e;
+		}
 	}
 
 	public static NodeInfoHashManager getInstance() {
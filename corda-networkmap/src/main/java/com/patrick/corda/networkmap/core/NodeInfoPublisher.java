@@ -0,0 +1,134 @@
+package com.patrick.corda.networkmap.core;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Verifies and registers uploaded "SignedNodeInfo" objects on a dedicated,
+ * bounded pool so that a registration storm cannot occupy the connector
+ * threads which also serve the network map. Publications beyond the capacity
+ * of the queue are rejected immediately instead of piling up.
+ *
+ * @author Patrick Pan
+ *
+ */
+public class NodeInfoPublisher {
+
+	/**
+	 * The number of threads verifying publications.
+	 */
+	private static final int THREADS = Integer.getInteger("corda.networkmap.publish.threads",
+			Runtime.getRuntime().availableProcessors());
+
+	/**
+	 * The number of publications which may wait for a verification thread.
+	 */
+	private static final int QUEUE_CAPACITY = Integer.getInteger("corda.networkmap.publish.queueCapacity", 1000);
+
+	/**
+	 * The number of seconds a rejected publisher is asked to wait before retrying.
+	 */
+	private static final int RETRY_AFTER_SECONDS = Integer.getInteger("corda.networkmap.publish.retryAfter", 5);
+
+	/**
+	 * How long in milliseconds a publication may take, from uploading the NodeInfo
+	 * until it is registered, before the publisher is asked to retry.
+	 */
+	private static final long TIMEOUT_MILLIS = Long.getLong("corda.networkmap.publish.timeout", 60000L);
+
+	private final ThreadPoolExecutor executor;
+
+	private NodeInfoPublisher() {
+		AtomicInteger threadNumber = new AtomicInteger();
+
+		executor = new ThreadPoolExecutor(THREADS, THREADS, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(QUEUE_CAPACITY), runnable -> {
+					Thread thread = new Thread(runnable, "node-info-publish-" + threadNumber.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}, new ThreadPoolExecutor.AbortPolicy());
+	}
+
+	/**
+	 * Queues the serialized "SignedNodeInfo" object for registration.
+	 *
+	 * @param signedNodeInfoByteArray
+	 * @return completes when the node is registered, or exceptionally with the
+	 *         reason it was refused
+	 * @throws RejectedExecutionException if the queue is full or the publisher has
+	 *                                    been shut down
+	 */
+	public CompletableFuture<Void> publish(byte[] signedNodeInfoByteArray) {
+		CompletableFuture<Void> future = new CompletableFuture<>();
+
+		executor.execute(() -> {
+			try {
+				NodeInfoHashManager.getInstance().addNode(signedNodeInfoByteArray);
+				future.complete(null);
+			} catch (Exception e) {
+				future.completeExceptionally(e);
+			}
+		});
+
+		return future;
+	}
+
+	/**
+	 * @return the number of publications waiting for a verification thread
+	 */
+	public int getQueueDepth() {
+		return executor.getQueue().size();
+	}
+
+	public int getQueueCapacity() {
+		return QUEUE_CAPACITY;
+	}
+
+	/**
+	 * @return the approximate number of publications being verified
+	 */
+	public int getActiveCount() {
+		return executor.getActiveCount();
+	}
+
+	public int getRetryAfterSeconds() {
+		return RETRY_AFTER_SECONDS;
+	}
+
+	public long getTimeoutMillis() {
+		return TIMEOUT_MILLIS;
+	}
+
+	/**
+	 * Stops accepting publications and waits for the queued ones to be registered.
+	 */
+	public void destroy() {
+		executor.shutdown();
+
+		try {
+			if (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+				LOGGER.warn("[{}] NodeInfo publications are still pending.", getQueueDepth());
+			}
+		} catch (InterruptedException e) {
+			LOGGER.warn("Interrupted while waiting for the NodeInfo publications to finish.", e);
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static final Logger LOGGER = LoggerFactory.getLogger("cordaNetworkMapLogger");
+
+	public static NodeInfoPublisher getInstance() {
+		return SingletonHelper.INSTANCE;
+	}
+
+	private static class SingletonHelper {
+		private static final NodeInfoPublisher INSTANCE = new NodeInfoPublisher();
+	}
+}
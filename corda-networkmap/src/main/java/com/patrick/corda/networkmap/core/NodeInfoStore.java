@@ -0,0 +1,492 @@
+package com.patrick.corda.networkmap.core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Durable storage of the accepted "SignedNodeInfo" bytes. Every change is
+ * appended to a checksummed log and the log is periodically compacted into a
+ * snapshot, so a restart only needs a sequential read of two files.
+ *
+ * <p>
+ * A record is laid out as: type (1 byte), node info hash (64 ASCII hex
+ * characters), payload length (4 bytes), payload and the CRC32 of everything
+ * before it (4 bytes). Replaying records is idempotent, which keeps recovery
+ * simple if the process dies in the middle of a compaction.
+ * </p>
+ *
+ * <p>
+ * Appending only writes a record. It is forced to the storage device by
+ * {@link #sync(long)}, which callers run once they have released their own
+ * locks, so a single force covers every record appended meanwhile.
+ * </p>
+ *
+ * @author Patrick Pan
+ *
+ */
+public class NodeInfoStore {
+
+	private static final byte ADD = 1;
+	private static final byte REMOVE = 2;
+
+	private static final int HASH_LENGTH = 64;
+	private static final int HEADER_LENGTH = 1 + HASH_LENGTH + 4;
+	private static final int CHECKSUM_LENGTH = 4;
+
+	private static final String LOG = "node-infos.log";
+	private static final String ROTATED_LOG = "node-infos.log.1";
+	private static final String SNAPSHOT = "node-infos.snapshot";
+	private static final String SIGNED_NETWORK_MAP = "network-map.signed";
+	private static final String TEMPORARY_SUFFIX = ".tmp";
+
+	/**
+	 * The number of appended records after which the log is compacted into a new
+	 * snapshot.
+	 */
+	private static final int COMPACTION_THRESHOLD = Integer
+			.getInteger("corda.networkmap.storage.compactionThreshold", 10000);
+
+	/**
+	 * Whether appended records are forced to the storage device before the
+	 * publisher is answered.
+	 */
+	private static final boolean SYNC = Boolean
+			.parseBoolean(System.getProperty("corda.networkmap.storage.sync", "true"));
+
+	private final File directory;
+	private final ExecutorService compactionExecutor = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "node-info-store-compaction");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private FileChannel logChannel;
+	private int appendsSinceCompaction;
+
+	/**
+	 * Set while a snapshot is written in the background. A compaction which fails
+	 * leaves the rotated log behind, and the next one adds the log to it and
+	 * writes the snapshot again.
+	 */
+	private volatile boolean compacting;
+
+	/**
+	 * The number of records appended since the store was loaded, and how many of
+	 * them have been forced to the storage device. The latter is guarded by
+	 * "syncMonitor", which is never taken while holding the monitor of the store.
+	 */
+	private long appendedSequence;
+	private final Object syncMonitor = new Object();
+	private long syncedSequence;
+
+	NodeInfoStore(File directory) {
+		this.directory = directory;
+
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			LOGGER.error("Fail to create the storage directory [{}].", directory.getAbsolutePath());
+		}
+	}
+
+	/**
+	 * Reads the snapshot and the logs written since then and opens the log for
+	 * appending.
+	 *
+	 * @return the serialized "SignedNodeInfo" objects keyed by node info hash, in
+	 *         the order they were accepted
+	 * @throws IOException
+	 */
+	public synchronized Map<String, byte[]> load() throws IOException {
+		Map<String, byte[]> entries = new LinkedHashMap<>();
+
+		File log = file(LOG);
+		File rotatedLog = file(ROTATED_LOG);
+
+		replay(file(SNAPSHOT), entries);
+		replay(rotatedLog, entries);
+		long validLength = replay(log, entries);
+
+		openLog(validLength);
+
+		if (rotatedLog.exists()) {
+			/**
+			 * The process stopped during a compaction, so finish it now before any new
+			 * record is appended.
+			 */
+			writeSnapshot(entries);
+			logChannel.truncate(0);
+			Files.delete(rotatedLog.toPath());
+		}
+
+		LOGGER.info("[{}] NodeInfo objects are loaded from [{}].", entries.size(), directory.getAbsolutePath());
+		return entries;
+	}
+
+	/**
+	 * @param hash
+	 * @param signedNodeInfoByteArray
+	 * @return the sequence number of the record, to be passed to
+	 *         {@link #sync(long)}
+	 * @throws IOException
+	 */
+	public synchronized long append(String hash, byte[] signedNodeInfoByteArray) throws IOException {
+		return write(ADD, hash, signedNodeInfoByteArray);
+	}
+
+	/**
+	 * @param hash
+	 * @return the sequence number of the record, to be passed to
+	 *         {@link #sync(long)}
+	 * @throws IOException
+	 */
+	public synchronized long appendRemoval(String hash) throws IOException {
+		return write(REMOVE, hash, new byte[0]);
+	}
+
+	/**
+	 * Forces every record up to the given one to the storage device, unless
+	 * "corda.networkmap.storage.sync" is false. Callers waiting meanwhile are
+	 * covered by the same force.
+	 *
+	 * @param sequence
+	 * @throws IOException
+	 */
+	public void sync(long sequence) throws IOException {
+		if (!SYNC) {
+			return;
+		}
+
+		synchronized (syncMonitor) {
+			if (syncedSequence >= sequence) {
+				return;
+			}
+
+			long appended;
+			FileChannel channel;
+
+			synchronized (this) {
+				appended = appendedSequence;
+				channel = logChannel;
+			}
+
+			try {
+				if (channel != null) {
+					channel.force(false);
+				}
+			} catch (ClosedChannelException e) {
+				/**
+				 * The log has been rotated or closed meanwhile, which forces it first.
+				 */
+			}
+
+			syncedSequence = appended;
+		}
+	}
+
+	/**
+	 * @return the sequence number of the last appended record
+	 */
+	public synchronized long getAppendedSequence() {
+		return appendedSequence;
+	}
+
+	public synchronized boolean isCompactionDue() {
+		return appendsSinceCompaction >= COMPACTION_THRESHOLD;
+	}
+
+	/**
+	 * Starts a new log and writes the given entries as the new snapshot in the
+	 * background. The caller must make sure nothing is appended between taking
+	 * "entries" and calling this method.
+	 *
+	 * @param entries all currently registered node infos
+	 * @throws IOException
+	 */
+	public synchronized void compact(Map<String, byte[]> entries) throws IOException {
+		if (logChannel == null || compacting) {
+			LOGGER.debug("A compaction is already in progress.");
+			return;
+		}
+
+		File rotatedLog = file(ROTATED_LOG);
+		rotateLog(rotatedLog);
+		appendsSinceCompaction = 0;
+		compacting = true;
+
+		compactionExecutor.execute(() -> {
+			try {
+				writeSnapshot(entries);
+				Files.delete(rotatedLog.toPath());
+				LOGGER.debug("[{}] NodeInfo objects are compacted into a new snapshot.", entries.size());
+			} catch (IOException e) {
+				LOGGER.error("Fail to write the NodeInfo snapshot, it is written again by the next compaction.", e);
+			} finally {
+				compacting = false;
+			}
+		});
+	}
+
+	/**
+	 * Moves the records of the log to the rotated log and starts an empty log. The
+	 * rotated log still exists if the last compaction failed, and then the records
+	 * are added to it, so it keeps every record since the last snapshot.
+	 */
+	private void rotateLog(File rotatedLog) throws IOException {
+		File log = file(LOG);
+
+		/**
+		 * Records are forced here rather than when the channel is closed, which
+		 * {@link #sync(long)} relies on.
+		 */
+		logChannel.force(false);
+
+		if (!rotatedLog.exists()) {
+			long length = logChannel.position();
+			boolean moved = false;
+			logChannel.close();
+
+			try {
+				Files.move(log.toPath(), rotatedLog.toPath(), StandardCopyOption.ATOMIC_MOVE);
+				moved = true;
+			} finally {
+				openLog(moved ? 0 : length);
+			}
+
+			return;
+		}
+
+		try (FileChannel rotatedChannel = FileChannel.open(rotatedLog.toPath(), StandardOpenOption.WRITE);
+				FileChannel readChannel = FileChannel.open(log.toPath(), StandardOpenOption.READ)) {
+			long rotatedLength = rotatedChannel.size();
+			long length = logChannel.position();
+
+			try {
+				long transferred = 0;
+
+				while (transferred < length) {
+					transferred += rotatedChannel.transferFrom(readChannel, rotatedLength + transferred,
+							length - transferred);
+				}
+
+				rotatedChannel.force(false);
+			} catch (IOException e) {
+				rotatedChannel.truncate(rotatedLength);
+				throw e;
+			}
+		}
+
+		logChannel.truncate(0);
+		logChannel.position(0);
+	}
+
+	/**
+	 * Test hook, waits for the snapshot being written in the background.
+	 */
+	void awaitCompaction() throws InterruptedException, ExecutionException {
+		compactionExecutor.submit(() -> {
+		}).get();
+	}
+
+	public byte[] loadSignedNetworkMap() throws IOException {
+		File file = file(SIGNED_NETWORK_MAP);
+		return file.isFile() ? Files.readAllBytes(file.toPath()) : null;
+	}
+
+	public void saveSignedNetworkMap(byte[] signedNetworkMapByteArray) throws IOException {
+		File temporaryFile = file(SIGNED_NETWORK_MAP + TEMPORARY_SUFFIX);
+		Files.write(temporaryFile.toPath(), signedNetworkMapByteArray);
+		Files.move(temporaryFile.toPath(), file(SIGNED_NETWORK_MAP).toPath(), StandardCopyOption.ATOMIC_MOVE,
+				StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	public synchronized void close() throws IOException {
+		compactionExecutor.shutdown();
+
+		try {
+			if (!compactionExecutor.awaitTermination(1, TimeUnit.MINUTES)) {
+				LOGGER.warn("The NodeInfo snapshot is still being written.");
+			}
+		} catch (InterruptedException e) {
+			LOGGER.warn("Interrupted while waiting for the NodeInfo snapshot to be written.", e);
+			Thread.currentThread().interrupt();
+		}
+
+		if (logChannel != null) {
+			try {
+				logChannel.force(false);
+			} finally {
+				logChannel.close();
+				logChannel = null;
+			}
+		}
+	}
+
+	private long write(byte type, String hash, byte[] payload) throws IOException {
+		if (logChannel == null) {
+			throw new IOException("The NodeInfo store has not been loaded or has been closed.");
+		}
+
+		ByteBuffer buffer = toRecord(type, hash, payload);
+		while (buffer.hasRemaining()) {
+			logChannel.write(buffer);
+		}
+
+		appendsSinceCompaction++;
+		return ++appendedSequence;
+	}
+
+	private ByteBuffer toRecord(byte type, String hash, byte[] payload) {
+		byte[] hashBytes = hash.getBytes(StandardCharsets.US_ASCII);
+
+		if (hashBytes.length != HASH_LENGTH) {
+			throw new IllegalArgumentException(String.format("[%s] is not a SHA-256 hash.", hash));
+		}
+
+		ByteBuffer buffer = ByteBuffer.allocate(HEADER_LENGTH + payload.length + CHECKSUM_LENGTH);
+		buffer.put(type).put(hashBytes).putInt(payload.length).put(payload);
+
+		CRC32 crc32 = new CRC32();
+		crc32.update(buffer.array(), 0, buffer.position());
+		buffer.putInt((int) crc32.getValue());
+		buffer.flip();
+		return buffer;
+	}
+
+	/**
+	 * Applies every intact record of the file to "entries".
+	 *
+	 * @param file
+	 * @param entries
+	 * @return the length of the intact prefix of the file
+	 * @throws IOException
+	 */
+	private long replay(File file, Map<String, byte[]> entries) throws IOException {
+		if (!file.isFile()) {
+			return 0;
+		}
+
+		CRC32 crc32 = new CRC32();
+		long validLength = 0;
+
+		try (DataInputStream inputStream = new DataInputStream(
+				new CheckedInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16), crc32))) {
+			while (true) {
+				crc32.reset();
+
+				int type = inputStream.read();
+				if (type < 0) {
+					break;
+				}
+
+				byte[] hashBytes = new byte[HASH_LENGTH];
+				inputStream.readFully(hashBytes);
+				int length = inputStream.readInt();
+
+				if (length < 0 || validLength + HEADER_LENGTH + length + CHECKSUM_LENGTH > file.length()) {
+					LOGGER.warn("Record at [{}] of [{}] has an invalid length.", validLength, file.getName());
+					break;
+				}
+
+				byte[] payload = new byte[length];
+				inputStream.readFully(payload);
+				int expectedChecksum = (int) crc32.getValue();
+
+				if (inputStream.readInt() != expectedChecksum) {
+					LOGGER.warn("Record at [{}] of [{}] is corrupted.", validLength, file.getName());
+					break;
+				}
+
+				apply(type, new String(hashBytes, StandardCharsets.US_ASCII), payload, entries);
+				validLength += HEADER_LENGTH + length + CHECKSUM_LENGTH;
+			}
+		} catch (EOFException e) {
+			LOGGER.warn("[{}] ends with an incomplete record at [{}].", file.getName(), validLength);
+		}
+
+		return validLength;
+	}
+
+	private void apply(int type, String hash, byte[] payload, Map<String, byte[]> entries) {
+		if (type == ADD) {
+			entries.remove(hash);
+			entries.put(hash, payload);
+		} else if (type == REMOVE) {
+			entries.remove(hash);
+		} else {
+			LOGGER.warn("Unknown record type [{}] is ignored.", type);
+		}
+	}
+
+	private void openLog(long validLength) throws IOException {
+		logChannel = FileChannel.open(file(LOG).toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+
+		if (logChannel.size() > validLength) {
+			LOGGER.warn("Discard [{}] bytes at the end of [{}].", logChannel.size() - validLength, LOG);
+			logChannel.truncate(validLength);
+		}
+
+		logChannel.position(validLength);
+	}
+
+	private void writeSnapshot(Map<String, byte[]> entries) throws IOException {
+		File temporaryFile = file(SNAPSHOT + TEMPORARY_SUFFIX);
+
+		try (FileOutputStream fileOutputStream = new FileOutputStream(temporaryFile);
+				OutputStream outputStream = new BufferedOutputStream(fileOutputStream, 1 << 16)) {
+			for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+				outputStream.write(toRecord(ADD, entry.getKey(), entry.getValue()).array());
+			}
+
+			outputStream.flush();
+			fileOutputStream.getChannel().force(false);
+		}
+
+		Files.move(temporaryFile.toPath(), file(SNAPSHOT).toPath(), StandardCopyOption.ATOMIC_MOVE,
+				StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	private File file(String name) {
+		return new File(directory, name);
+	}
+
+	private static final Logger LOGGER = LoggerFactory.getLogger("cordaNetworkMapLogger");
+
+	/**
+	 * The directory holding the log, the snapshot, the last signed network map and
+	 * other state worth keeping across restarts.
+	 */
+	static final String STORAGE_DIRECTORY = System.getProperty("corda.networkmap.storage.dir",
+			new File(System.getProperty("user.home"), ".corda-networkmap").getPath());
+
+	public static NodeInfoStore getInstance() {
+		return SingletonHelper.INSTANCE;
+	}
+
+	private static class SingletonHelper {
+		private static final NodeInfoStore INSTANCE = new NodeInfoStore(new File(STORAGE_DIRECTORY));
+	}
+}
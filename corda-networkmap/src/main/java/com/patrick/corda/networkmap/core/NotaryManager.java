@@ -1,19 +1,24 @@
 package com.patrick.corda.networkmap.core;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.security.KeyStore;
 import java.security.KeyStoreException;
 import java.security.PublicKey;
 import java.security.cert.Certificate;
 import java.security.cert.X509Certificate;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ExecutionException;
 
 import javax.security.auth.x500.X500Principal;
 
@@ -21,6 +26,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import net.corda.core.crypto.Crypto;
+import net.corda.core.crypto.SecureHash;
 import net.corda.core.identity.CordaX500Name;
 import net.corda.core.identity.Party;
 import net.corda.core.node.NotaryInfo;
@@ -33,62 +39,172 @@ import net.corda.nodeapi.internal.crypto.KeyStoreUtilities;
  */
 public class NotaryManager {
 
-	private List<NotaryInfo> notaryInfoList = new ArrayList<>();
+	/**
+	 * Replaced as a whole by every reload.
+	 */
+	private volatile List<NotaryInfo> notaryInfoList = Collections.emptyList();
+
+	private final File notaryKeyStoreDirectory;
+
+	/**
+	 * The notary extracted from every key store by the hash of the key store file,
+	 * so a reload only opens the key stores which have been added or replaced.
+	 * Only used while holding the lock of this manager.
+	 */
+	private Map<SecureHash, NotaryInfo> notaryInfoCache = new HashMap<>();
+
+	/**
+	 * The number of key stores loaded at the same time.
+	 */
+	private static final int LOAD_PARALLELISM = Integer.getInteger("corda.networkmap.notaries.loadThreads",
+			Runtime.getRuntime().availableProcessors());
+
+	private static final String KEY_STORE_SUFFIX = ".jks";
 
 	private NotaryManager() {
-		try {
-			initNotaryInfoList();
-		} catch (FileNotFoundException e) {
-			LOGGER.error("The file is probably deleted illegally.", e);
-		} catch (IOException e) {
-			LOGGER.error("Probably, there is an error during reading the key store from the file.", e);
-		} catch (KeyStoreException e) {
-			LOGGER.error("Probably, the key store password is incorrect or the key store is damaged.", e);
-		} catch (Exception e) {
-			LOGGER.error("Unexpected exception occurs.", e);
+		this(getNotaryKeyStoreDirectory());
+	}
+
+	/**
+	 * @param notaryKeyStoreDirectory null if there is none
+	 */
+	NotaryManager(File notaryKeyStoreDirectory) {
+		this.notaryKeyStoreDirectory = notaryKeyStoreDirectory;
+
+		if (notaryKeyStoreDirectory != null) {
+			reload();
 		}
 	}
 
-	private void initNotaryInfoList() throws KeyStoreException, IOException {
+	private static File getNotaryKeyStoreDirectory() {
 		URL url = NotaryManager.class.getClassLoader().getResource("notaries");
 
 		if (Objects.isNull(url)) {
 			LOGGER.error(
 					"The resource [notaries] could not be found or the process doesn't have adequate  privileges to get the resource.");
-			return;
+			return null;
 		}
 
-		File notaryKeyStoreDirectory = new File(url.getPath());
+		File directory = new File(url.getPath());
 
-		if (!notaryKeyStoreDirectory.isDirectory()) {
+		if (!directory.isDirectory()) {
 			LOGGER.error("The resource [notaries] must be a directory instead of a file.");
-			return;
+			return null;
 		}
 
-		File[] notaryKeyStores = notaryKeyStoreDirectory.listFiles();
+		return directory;
+	}
 
-		if (Objects.isNull(notaryKeyStores) || notaryKeyStores.length == 0) {
+	/**
+	 * Reads the notaries directory again.
+	 * 
+	 * @return true if the notaries have changed
+	 */
+	public synchronized boolean reload() {
+		try {
+			List<NotaryInfo> newNotaryInfoList = initNotaryInfoList();
+
+			if (newNotaryInfoList.equals(notaryInfoList)) {
+				return false;
+			}
+
+			notaryInfoList = newNotaryInfoList;
+			return true;
+		} catch (ExecutionException e) {
+			LOGGER.error("This exception should not occur.", e);
+		} catch (InterruptedException e) {
+			LOGGER.error("Interrupted while loading the notary key stores.", e);
+			Thread.currentThread().interrupt();
+		} catch (Exception e) {
+			LOGGER.error("Unexpected exception occurs.", e);
+		}
+
+		return false;
+	}
+
+	private List<NotaryInfo> initNotaryInfoList() throws InterruptedException, ExecutionException {
+		List<File> notaryKeyStores = DirectoryScanner.listFiles(notaryKeyStoreDirectory, KEY_STORE_SUFFIX);
+
+		if (notaryKeyStores.isEmpty()) {
 			LOGGER.error("The directory 'notaries' is empty but at least one notary must be specified.");
-			return;
+			return Collections.emptyList();
+		}
+
+		Map<SecureHash, NotaryInfo> previousNotaryInfoCache = notaryInfoCache;
+		List<LoadedNotary> loadedNotaries = DirectoryScanner.process(notaryKeyStores, LOAD_PARALLELISM,
+				notaryKeyStore -> loadNotary(notaryKeyStore, previousNotaryInfoCache));
+
+		Map<SecureHash, NotaryInfo> newNotaryInfoCache = new HashMap<>();
+		List<NotaryInfo> newNotaryInfoList = new ArrayList<>();
+
+		for (LoadedNotary loadedNotary : loadedNotaries) {
+			newNotaryInfoCache.put(loadedNotary.fileHash, loadedNotary.notaryInfo);
+			newNotaryInfoList.add(loadedNotary.notaryInfo);
 		}
 
-		initNotaryInfoList(notaryKeyStores);
+		notaryInfoCache = newNotaryInfoCache;
+		return Collections.unmodifiableList(newNotaryInfoList);
 	}
 
-	private void initNotaryInfoList(File[] notaryKeyStores) throws KeyStoreException, IOException {
-		for (File notaryKeyStore : notaryKeyStores) {
-			X509Certificate x509Certificate = loadCertificate(notaryKeyStore);
+	/**
+	 * @param notaryKeyStore
+	 * @param notaryInfoCache
+	 * @return null if the key store cannot be used
+	 */
+	private LoadedNotary loadNotary(File notaryKeyStore, Map<SecureHash, NotaryInfo> notaryInfoCache) {
+		try {
+			byte[] byteArray = Files.readAllBytes(notaryKeyStore.toPath());
+			SecureHash fileHash = SecureHash.sha256(byteArray);
+			NotaryInfo notaryInfo = notaryInfoCache.get(fileHash);
+
+			if (notaryInfo != null) {
+				LOGGER.debug("Reuse the notary of [{}].", notaryKeyStore.getName());
+				return new LoadedNotary(fileHash, notaryInfo);
+			}
+
+			X509Certificate x509Certificate = loadCertificate(byteArray);
 
 			if (Objects.isNull(x509Certificate)) {
-				continue;
+				return null;
 			}
 
-			notaryInfoList.add(buildNotaryInfo(x509Certificate));
+			return new LoadedNotary(fileHash, buildNotaryInfo(x509Certificate));
+		} catch (NoSuchFileException e) {
+			LOGGER.error(String.format("The file [%s] is probably deleted illegally.", notaryKeyStore.getName()), e);
+		} catch (IOException e) {
+			LOGGER.error(String.format("Probably, there is an error during reading the key store from [%s].",
+					notaryKeyStore.getName()), e);
+		} catch (KeyStoreException e) {
+			LOGGER.error(String.format(
+					"Probably, the key store password is incorrect or the key store [%s] is damaged.",
+					notaryKeyStore.getName()), e);
+		}
+
+		return null;
+	}
+
+	/**
+	 * Reloads the notaries whenever the directory changes.
+	 * 
+	 * @param listener called after the notaries have changed
+	 * @return null if there is no notaries directory
+	 * @throws IOException
+	 */
+	public DirectoryWatcher watch(Runnable listener) throws IOException {
+		if (notaryKeyStoreDirectory == null) {
+			return null;
 		}
+
+		return DirectoryWatcher.watch(notaryKeyStoreDirectory, () -> {
+			if (reload()) {
+				LOGGER.info("The notaries have changed.");
+				listener.run();
+			}
+		});
 	}
 
-	private X509Certificate loadCertificate(File notaryKeyStore) throws KeyStoreException, IOException {
-		try (InputStream inputStream = new FileInputStream(notaryKeyStore)) {
+	private X509Certificate loadCertificate(byte[] notaryKeyStore) throws KeyStoreException, IOException {
+		try (InputStream inputStream = new ByteArrayInputStream(notaryKeyStore)) {
 			KeyStore keyStore = KeyStoreUtilities.loadKeyStore(inputStream, STORE_PASSWORD);
 
 			Certificate certificate = keyStore.getCertificate(ALIAS);
@@ -116,6 +232,16 @@ public class NotaryManager {
 		return new NotaryInfo(party, validating);
 	}
 
+	private static class LoadedNotary {
+		private final SecureHash fileHash;
+		private final NotaryInfo notaryInfo;
+
+		private LoadedNotary(SecureHash fileHash, NotaryInfo notaryInfo) {
+			this.fileHash = fileHash;
+			this.notaryInfo = notaryInfo;
+		}
+	}
+
 	public List<NotaryInfo> getNotaryInfoList() {
 		return notaryInfoList;
 	}
@@ -0,0 +1,97 @@
+package com.patrick.corda.networkmap.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import net.corda.core.crypto.SecureHash;
+import net.corda.core.identity.PartyAndCertificate;
+import net.corda.core.node.NodeInfo;
+import net.corda.nodeapi.internal.SignedNodeInfo;
+
+/**
+ * A "NodeInfo" accepted by the network map. The signed bytes can never change,
+ * so deserialization, signature verification and hashing are done exactly once
+ * when the node is published and the results are kept here.
+ * 
+ * @author Patrick Pan
+ *
+ */
+public class RegisteredNode {
+
+	private final SignedArtifact signedNodeInfoArtifact;
+	private final SignedNodeInfo signedNodeInfo;
+	private final NodeInfo nodeInfo;
+	private final SecureHash hash;
+	private final String hashString;
+	private final List<PartyAndCertificate> legalIdentitiesAndCerts;
+
+	private RegisteredNode(byte[] signedNodeInfoByteArray, SignedNodeInfo signedNodeInfo) {
+		this.signedNodeInfo = signedNodeInfo;
+		this.nodeInfo = signedNodeInfo.verified();
+		this.hash = SecureHash.sha256(signedNodeInfo.getRaw().getBytes());
+		this.hashString = hash.toString();
+		this.signedNodeInfoArtifact = SignedArtifact.newInstance(signedNodeInfoByteArray, hash);
+		this.legalIdentitiesAndCerts = Collections
+				.unmodifiableList(new ArrayList<>(nodeInfo.getLegalIdentitiesAndCerts()));
+	}
+
+	/**
+	 * The serialized "SignedNodeInfo" exactly as the node uploaded it. It must not
+	 * be modified.
+	 * 
+	 * @return
+	 */
+	public byte[] getSignedNodeInfoByteArray() {
+		return signedNodeInfoArtifact.getByteArray();
+	}
+
+	public SignedArtifact getSignedNodeInfoArtifact() {
+		return signedNodeInfoArtifact;
+	}
+
+	public SignedNodeInfo getSignedNodeInfo() {
+		return signedNodeInfo;
+	}
+
+	public NodeInfo getNodeInfo() {
+		return nodeInfo;
+	}
+
+	public SecureHash getHash() {
+		return hash;
+	}
+
+	public String getHashString() {
+		return hashString;
+	}
+
+	public List<PartyAndCertificate> getLegalIdentitiesAndCerts() {
+		return legalIdentitiesAndCerts;
+	}
+
+	/**
+	 * @param signedNodeInfoByteArray the serialized "SignedNodeInfo" as uploaded
+	 *                                by the node
+	 * @return
+	 * @throws IllegalArgumentException if any signature of the "NodeInfo" is
+	 *                                  invalid
+	 */
+	public static RegisteredNode newInstance(byte[] signedNodeInfoByteArray) {
+		SignedNodeInfo signedNodeInfo = SerializationEnvironmentManager.getInstance()
+				.deserializeObjectOnContext(SignedNodeInfo.class, signedNodeInfoByteArray);
+		return new RegisteredNode(signedNodeInfoByteArray, signedNodeInfo);
+	}
+
+	/**
+	 * @param signedNodeInfo
+	 * @return
+	 * @throws IllegalArgumentException if any signature of the "NodeInfo" is
+	 *                                  invalid
+	 */
+	public static RegisteredNode newInstance(SignedNodeInfo signedNodeInfo) {
+		byte[] signedNodeInfoByteArray = SerializationEnvironmentManager.getInstance()
+				.serializeObjectOnContext(signedNodeInfo).getBytes();
+		return new RegisteredNode(signedNodeInfoByteArray, signedNodeInfo);
+	}
+}
@@ -1,13 +1,40 @@
 package com.patrick.corda.networkmap.core;
 
+import java.security.InvalidKeyException;
+import java.security.KeyPair;
+import java.security.SignatureException;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+
+import org.bouncycastle.asn1.x509.NameConstraints;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import kotlin.Pair;
 import net.corda.client.rpc.internal.KryoClientSerializationScheme;
+import net.corda.core.crypto.Crypto;
+import net.corda.core.crypto.DigitalSignature;
+import net.corda.core.crypto.SecureHash;
+import net.corda.core.identity.CordaX500Name;
+import net.corda.core.identity.PartyAndCertificate;
+import net.corda.core.internal.DigitalSignatureWithCert;
+import net.corda.core.internal.SignedDataWithCert;
+import net.corda.core.node.NetworkParameters;
+import net.corda.core.node.NodeInfo;
 import net.corda.core.serialization.SerializationContext;
-import net.corda.core.serialization.SerializationDefaults;
 import net.corda.core.serialization.SerializationFactory;
 import net.corda.core.serialization.SerializedBytes;
 import net.corda.core.serialization.internal.SerializationEnvironmentImpl;
 import net.corda.core.serialization.internal.SerializationEnvironmentKt;
 import net.corda.core.utilities.ByteSequence;
+import net.corda.core.utilities.NetworkHostAndPort;
+import net.corda.nodeapi.internal.SignedNodeInfo;
+import net.corda.nodeapi.internal.crypto.CertificateType;
+import net.corda.nodeapi.internal.crypto.X509Utilities;
+import net.corda.nodeapi.internal.network.NetworkMap;
+import net.corda.nodeapi.internal.network.ParametersUpdate;
 import net.corda.nodeapi.internal.serialization.SerializationFactoryImpl;
 import net.corda.nodeapi.internal.serialization.SharedContexts;
 import net.corda.nodeapi.internal.serialization.amqp.AMQPServerSerializationScheme;
@@ -20,9 +47,23 @@ import net.corda.nodeapi.internal.serialization.amqp.AMQPServerSerializationSche
 public class SerializationEnvironmentManager {
 
 	/**
+	 * Both are immutable and safe to share between threads once "init" has run.
+	 * The factory makes the context current around every call by itself.
+	 */
+	private SerializationFactory serializationFactory;
+	private SerializationContext p2pContext;
+
+	/**
+	 * The node serialization environment can only be set once per process, so
+	 * later calls, e.g. from a test which also embeds the servlets, do nothing.
+	 * 
 	 * @see the 61th line of io/cordite/networkmap/serialisation/SerializationEnvironment.kt
 	 */
-	public void init() {
+	public synchronized void init() {
+		if (serializationFactory != null) {
+			return;
+		}
+
 		SerializationFactoryImpl serializationFactoryImpl = new SerializationFactoryImpl();
 		serializationFactoryImpl.registerScheme(new KryoClientSerializationScheme());
 		serializationFactoryImpl.registerScheme(new AMQPServerSerializationScheme());
@@ -36,6 +77,64 @@ public class SerializationEnvironmentManager {
 				storageContext, checkpointContext);
 
 		SerializationEnvironmentKt.setNodeSerializationEnv(serializationEnvironmentImpl);
+
+		serializationFactory = serializationFactoryImpl;
+		p2pContext = SharedContexts.getAMQP_P2P_CONTEXT();
+	}
+
+	/**
+	 * Builds the AMQP serializers of every type the network map exchanges with
+	 * nodes by sending one throwaway object of each type through the factory, so
+	 * that the first real request does not pay for it.
+	 */
+	public void warmUp() {
+		long start = System.currentTimeMillis();
+
+		try {
+			KeyPair keyPair = Crypto.generateKeyPair(Crypto.ECDSA_SECP256R1_SHA256);
+			CordaX500Name name = new CordaX500Name("Warm Up", "London", "GB");
+			Pair<Duration, Duration> validityWindow = new Pair<>(Duration.ofMillis(0), Duration.ofDays(1));
+			X509Certificate caCertificate = X509Utilities.createSelfSignedCACertificate(name.getX500Principal(),
+					keyPair, validityWindow);
+			X509Certificate identityCertificate = X509Utilities.createCertificate(CertificateType.LEGAL_IDENTITY,
+					caCertificate, keyPair, name.getX500Principal(), keyPair.getPublic(), validityWindow,
+					(NameConstraints) null);
+			PartyAndCertificate partyAndCertificate = new PartyAndCertificate(
+					X509Utilities.INSTANCE.buildCertPath(identityCertificate, caCertificate));
+
+			NodeInfo nodeInfo = new NodeInfo(Collections.singletonList(new NetworkHostAndPort("localhost", 10002)),
+					Collections.singletonList(partyAndCertificate), 1, 1L);
+			SerializedBytes<NodeInfo> nodeInfoBytes = serializeObjectOnContext(nodeInfo);
+			SignedNodeInfo signedNodeInfo = new SignedNodeInfo(nodeInfoBytes, Collections
+					.singletonList(new DigitalSignature(Crypto.doSign(keyPair.getPrivate(), nodeInfoBytes.getBytes()))));
+			roundTrip(SignedNodeInfo.class, signedNodeInfo).verified();
+
+			NetworkParameters networkParameters = new NetworkParameters(1, Collections.emptyList(), 10485760,
+					Integer.MAX_VALUE, Instant.now(), 1, Collections.emptyMap(), Duration.ofDays(30));
+			SerializedBytes<NetworkParameters> networkParametersBytes = serializeObjectOnContext(networkParameters);
+			roundTrip(SignedDataWithCert.class, new SignedDataWithCert<>(networkParametersBytes,
+					new DigitalSignatureWithCert(caCertificate, sign(keyPair, networkParametersBytes)))).verified();
+
+			SecureHash hash = networkParametersBytes.getHash();
+			NetworkMap networkMap = new NetworkMap(Collections.singletonList(signedNodeInfo.getRaw().getHash()), hash,
+					new ParametersUpdate(hash, "Warm up", Instant.now()));
+			SerializedBytes<NetworkMap> networkMapBytes = serializeObjectOnContext(networkMap);
+			roundTrip(SignedDataWithCert.class, new SignedDataWithCert<>(networkMapBytes,
+					new DigitalSignatureWithCert(caCertificate, sign(keyPair, networkMapBytes)))).verified();
+
+			LOGGER.info("The serializers are warmed up in [{}] ms.", System.currentTimeMillis() - start);
+		} catch (Exception e) {
+			LOGGER.warn("Fail to warm up the serializers.", e);
+		}
+	}
+
+	private <T> T roundTrip(Class<T> clazz, T obj) {
+		return deserializeObjectOnContext(clazz, serializeObjectOnContext(obj).getBytes());
+	}
+
+	private byte[] sign(KeyPair keyPair, SerializedBytes<?> serializedBytes)
+			throws InvalidKeyException, SignatureException {
+		return Crypto.doSign(keyPair.getPrivate(), serializedBytes.getBytes());
 	}
 
 	/**
@@ -46,9 +145,7 @@ public class SerializationEnvironmentManager {
 	 * @return
 	 */
 	public <T> SerializedBytes<T> serializeObjectOnContext(T obj) {
-		SerializationFactory serializationFactory = SerializationFactory.Companion.getDefaultFactory();
-		return serializationFactory.withCurrentContext(SerializationDefaults.INSTANCE.getP2P_CONTEXT(),
-				() -> serializationFactory.serialize(obj, serializationFactory.getDefaultContext()));
+		return serializationFactory.serialize(obj, p2pContext);
 	}
 
 	/**
@@ -60,12 +157,11 @@ public class SerializationEnvironmentManager {
 	 * @return
 	 */
 	public <T> T deserializeObjectOnContext(Class<T> clazz, byte[] bytes) {
-		SerializationFactory serializationFactory = SerializationFactory.Companion.getDefaultFactory();
-		return serializationFactory.withCurrentContext(SerializationDefaults.INSTANCE.getP2P_CONTEXT(),
-				() -> serializationFactory.deserialize(ByteSequence.of(bytes), clazz,
-						serializationFactory.getDefaultContext()));
+		return serializationFactory.deserialize(ByteSequence.of(bytes), clazz, p2pContext);
 	}
 
+	private static final Logger LOGGER = LoggerFactory.getLogger("cordaNetworkMapLogger");
+
 	private SerializationEnvironmentManager() {
 	}
 
@@ -0,0 +1,161 @@
+package com.patrick.corda.networkmap.core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.corda.core.crypto.SecureHash;
+
+/**
+ * The serialized form of a signed object served by the network map together
+ * with the entity tag identifying it. Both are computed once per version of the
+ * object rather than once per request, and so are the compressed variants if
+ * any.
+ *
+ * @author Patrick Pan
+ *
+ */
+public class SignedArtifact {
+
+	public static final String GZIP = "gzip";
+	public static final String DEFLATE = "deflate";
+
+	private final byte[] byteArray;
+	private final String eTag;
+
+	/**
+	 * Compressed variants keyed by content coding, in order of preference. A
+	 * variant is only kept if it is smaller than the uncompressed bytes.
+	 */
+	private final Map<String, byte[]> encodedByteArrays;
+	private final Map<String, String> encodedETags;
+
+	private SignedArtifact(byte[] byteArray, String hash, Map<String, byte[]> encodedByteArrays) {
+		this.byteArray = byteArray;
+		this.eTag = '"' + hash + '"';
+		this.encodedByteArrays = Collections.unmodifiableMap(encodedByteArrays);
+
+		/**
+		 * A strong entity tag must differ between representations of the same
+		 * content.
+		 */
+		Map<String, String> eTags = new LinkedHashMap<>();
+		encodedByteArrays.keySet().forEach(encoding -> eTags.put(encoding, '"' + hash + '-' + encoding + '"'));
+		this.encodedETags = Collections.unmodifiableMap(eTags);
+	}
+
+	/**
+	 * The serialized bytes. They must not be modified.
+	 *
+	 * @return
+	 */
+	public byte[] getByteArray() {
+		return byteArray;
+	}
+
+	/**
+	 * A strong entity tag, i.e. a quoted hash of the content.
+	 *
+	 * @return
+	 */
+	public String getETag() {
+		return eTag;
+	}
+
+	/**
+	 * @return the available content codings, in order of preference
+	 */
+	public Iterable<String> getEncodings() {
+		return encodedByteArrays.keySet();
+	}
+
+	/**
+	 * @param encoding
+	 * @return the compressed bytes or null if there is no such variant
+	 */
+	public byte[] getEncodedByteArray(String encoding) {
+		return encodedByteArrays.get(encoding);
+	}
+
+	public String getEncodedETag(String encoding) {
+		return encodedETags.get(encoding);
+	}
+
+	/**
+	 * @param byteArray
+	 * @param hash      a hash which identifies the content, e.g. the hash a node
+	 *                  info or network parameters are addressed by
+	 * @return
+	 */
+	public static SignedArtifact newInstance(byte[] byteArray, SecureHash hash) {
+		return new SignedArtifact(byteArray, hash.toString(), Collections.emptyMap());
+	}
+
+	/**
+	 * Same as {@link #newInstance(byte[], SecureHash)} but also prepares the gzip
+	 * and deflate variants. It is meant for artifacts which are signed rarely and
+	 * downloaded by every node.
+	 *
+	 * @param byteArray
+	 * @param hash
+	 * @return
+	 */
+	public static SignedArtifact newCompressedInstance(byte[] byteArray, SecureHash hash) {
+		Map<String, byte[]> encodedByteArrays = new LinkedHashMap<>();
+
+		try {
+			putIfSmaller(encodedByteArrays, GZIP, byteArray, gzip(byteArray));
+			putIfSmaller(encodedByteArrays, DEFLATE, byteArray, deflate(byteArray));
+		} catch (IOException e) {
+			LOGGER.error("This exception should not occur.", e);
+		}
+
+		return new SignedArtifact(byteArray, hash.toString(), encodedByteArrays);
+	}
+
+	public static SignedArtifact newCompressedInstance(byte[] byteArray) {
+		return newCompressedInstance(byteArray, SecureHash.sha256(byteArray));
+	}
+
+	private static void putIfSmaller(Map<String, byte[]> encodedByteArrays, String encoding, byte[] byteArray,
+			byte[] encodedByteArray) {
+		if (encodedByteArray.length < byteArray.length) {
+			encodedByteArrays.put(encoding, encodedByteArray);
+		}
+	}
+
+	private static byte[] gzip(byte[] byteArray) throws IOException {
+		ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream(byteArray.length);
+
+		try (OutputStream outputStream = new GZIPOutputStream(byteArrayOutputStream)) {
+			outputStream.write(byteArray);
+		}
+
+		return byteArrayOutputStream.toByteArray();
+	}
+
+	/**
+	 * The "deflate" content coding is the zlib format.
+	 *
+	 * @see RFC 7230, section 4.2.2
+	 */
+	private static byte[] deflate(byte[] byteArray) throws IOException {
+		ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream(byteArray.length);
+
+		try (OutputStream outputStream = new DeflaterOutputStream(byteArrayOutputStream)) {
+			outputStream.write(byteArray);
+		}
+
+		return byteArrayOutputStream.toByteArray();
+	}
+
+	private static final Logger LOGGER = LoggerFactory.getLogger("cordaNetworkMapLogger");
+}
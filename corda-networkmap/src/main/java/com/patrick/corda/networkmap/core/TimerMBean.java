@@ -0,0 +1,22 @@
+package com.patrick.corda.networkmap.core;
+
+/**
+ * What JMX shows of a {@link Timer}.
+ *
+ * @author Patrick Pan
+ *
+ */
+public interface TimerMBean {
+
+	long getCount();
+
+	double getMeanMillis();
+
+	double getMaxMillis();
+
+	double getP50Millis();
+
+	double getP99Millis();
+
+	double getP999Millis();
+}
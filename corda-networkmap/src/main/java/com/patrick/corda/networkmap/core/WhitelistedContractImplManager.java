@@ -2,29 +2,31 @@ package com.patrick.corda.networkmap.core;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.lang.reflect.Modifier;
-import java.net.URI;
-import java.net.URISyntaxException;
+import java.io.OutputStream;
 import java.net.URL;
-import java.net.URLClassLoader;
-import java.nio.file.Paths;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.stream.Collectors;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.hash.Hashing;
-import com.google.common.hash.HashingInputStream;
-
-import io.github.lukehutch.fastclasspathscanner.FastClasspathScanner;
-import io.github.lukehutch.fastclasspathscanner.scanner.ScanResult;
 import net.corda.core.contracts.Contract;
 import net.corda.core.crypto.SecureHash;
 
@@ -36,62 +38,261 @@ import net.corda.core.crypto.SecureHash;
 public class WhitelistedContractImplManager {
 
 	/**
+	 * Replaced as a whole by every scan, so the network parameters are always built
+	 * from a complete whitelist.
+	 * 
 	 * @see the 12th line of AttachmentStorage.kt
 	 * @see the 111th line of MapSerializer.kt
 	 */
-	private Map<String, List<SecureHash>> whitelistedContractImplementations = new LinkedHashMap<>();
+	private volatile Map<String, List<SecureHash>> whitelistedContractImplementations = Collections.emptyMap();
+
+	private File cordappDirectory;
+
+	/**
+	 * The scan cache as written by the last scan. Only used while holding the lock
+	 * of this manager.
+	 */
+	private Properties scanCache;
+
+	private ContractClassScanner contractClassScanner = new ContractClassScanner(Contract.class.getClassLoader());
+
+	/**
+	 * The number of jars scanned at the same time.
+	 */
+	private static final int SCAN_PARALLELISM = Integer.getInteger("corda.networkmap.cordapps.scanThreads",
+			Runtime.getRuntime().availableProcessors());
+
+	/**
+	 * Remembers the contracts found in every jar by jar hash, so unchanged jars are
+	 * not scanned again after a restart. Only results which depend on nothing but
+	 * the jar itself are remembered. The version changes whenever the way
+	 * contracts are discovered does.
+	 */
+	private static final String SCAN_CACHE = "cordapp-scan.properties";
+	private static final String SCAN_CACHE_VERSION_KEY = "version";
+	private static final String SCAN_CACHE_VERSION = "3";
+
+	/**
+	 * The hash of every jar is also remembered by path together with its size and
+	 * modification time, so an unchanged jar is not even read again.
+	 */
+	private static final String FILE_KEY_PREFIX = "file.";
+
+	/**
+	 * A jar modified this recently when it is hashed is not remembered by path,
+	 * since a change within the same modification time tick of a coarse file
+	 * system would keep both its size and modification time.
+	 */
+	private static final long MODIFICATION_TIME_GRANULARITY_MILLIS = 2000L;
+
+	static final int HASH_CHUNK_SIZE = 64 * 1024;
 
 	private WhitelistedContractImplManager() {
-		try {
-			initWhitelistedContractImplementations();
-		} catch (IOException | URISyntaxException e) {
-			LOGGER.error("This exception should not occur.", e);
-		} catch (Exception e) {
-			LOGGER.error("Unexpected exception occurs.", e);
+		cordappDirectory = getCordappDirectory();
+
+		if (cordappDirectory != null) {
+			rescan();
 		}
 	}
 
-	private void initWhitelistedContractImplementations() throws IOException, URISyntaxException {
+	private File getCordappDirectory() {
 		URL url = NotaryManager.class.getClassLoader().getResource("cordapps");
 		if (Objects.isNull(url)) {
 			LOGGER.warn(
 					"The resource [cordapps] could not be found or the process doesn't have adequate  privileges to get the resource.");
-			return;
+			return null;
 		}
 
-		File cordappDirectory = new File(url.getPath());
+		File directory = new File(url.getPath());
 
-		if (!cordappDirectory.isDirectory()) {
+		if (!directory.isDirectory()) {
 			LOGGER.error("The resource [cordapps] must be a directory instead of a file.");
-			return;
+			return null;
+		}
+
+		return directory;
+	}
+
+	/**
+	 * Scans the CorDapps directory again. Only jars which are new or whose size or
+	 * modification time has changed are read, the others are taken from the scan
+	 * cache.
+	 * 
+	 * @return true if the whitelist has changed
+	 */
+	public synchronized boolean rescan() {
+		try {
+			Map<String, List<SecureHash>> newWhitelistedContractImplementations = scanCordapps();
+
+			if (newWhitelistedContractImplementations.equals(whitelistedContractImplementations)) {
+				return false;
+			}
+
+			whitelistedContractImplementations = newWhitelistedContractImplementations;
+			return true;
+		} catch (ExecutionException e) {
+			LOGGER.error("This exception should not occur.", e);
+		} catch (InterruptedException e) {
+			LOGGER.error("Interrupted while scanning the CorDapps.", e);
+			Thread.currentThread().interrupt();
+		} catch (Exception e) {
+			LOGGER.error("Unexpected exception occurs.", e);
 		}
 
-		File[] cordapps = cordappDirectory.listFiles();
+		return false;
+	}
 
-		if (Objects.isNull(cordapps) || cordapps.length == 0) {
+	private Map<String, List<SecureHash>> scanCordapps() throws InterruptedException, ExecutionException {
+		List<File> cordapps = DirectoryScanner.listFiles(cordappDirectory, ".jar");
+
+		if (cordapps.isEmpty()) {
 			LOGGER.warn(
 					"The directory 'cordapps' is empty but whitelist of contract implementations should not be empty. Otherwise, all contract implementations could be executed.");
-			return;
+			return Collections.emptyMap();
+		}
+
+		return scanCordapps(cordapps);
+	}
+
+	/**
+	 * Rescans the CorDapps whenever the directory changes.
+	 * 
+	 * @param listener called after the whitelist has changed
+	 * @return null if there is no CorDapps directory
+	 * @throws IOException
+	 */
+	public DirectoryWatcher watch(Runnable listener) throws IOException {
+		if (cordappDirectory == null) {
+			return null;
 		}
 
-		initWhitelistedContractImplementations(cordapps);
+		return DirectoryWatcher.watch(cordappDirectory, () -> {
+			if (rescan()) {
+				LOGGER.info("The whitelisted contract implementations have changed.");
+				listener.run();
+			}
+		});
 	}
 
-	private void initWhitelistedContractImplementations(File[] cordapps) throws IOException, URISyntaxException {
-		for (File cordapp : cordapps) {
-			SecureHash jarHash = getJarHash(cordapp);
-			List<String> contracts = scanJarForContracts(cordapp);
+	/**
+	 * @param cordapps
+	 * @return the new whitelist
+	 * @throws InterruptedException
+	 * @throws ExecutionException
+	 */
+	private Map<String, List<SecureHash>> scanCordapps(List<File> cordapps)
+			throws InterruptedException, ExecutionException {
+		if (scanCache == null) {
+			scanCache = loadScanCache();
+		}
 
-			if (!contracts.isEmpty() && LOGGER.isDebugEnabled()) {
+		Properties previousScanCache = scanCache;
+		ContractClassScanner.Session session = contractClassScanner.newSession(cordapps);
+		List<ScannedCordapp> scannedCordapps = DirectoryScanner.process(cordapps, SCAN_PARALLELISM,
+				cordapp -> scanCordapp(cordapp, previousScanCache, session));
+
+		Map<String, List<SecureHash>> newWhitelistedContractImplementations = new LinkedHashMap<>();
+		Properties newScanCache = new Properties();
+		newScanCache.setProperty(SCAN_CACHE_VERSION_KEY, SCAN_CACHE_VERSION);
+
+		for (ScannedCordapp scannedCordapp : scannedCordapps) {
+			if (!scannedCordapp.contracts.isEmpty() && LOGGER.isDebugEnabled()) {
 				LOGGER.debug("The Corda Contract implementations are [{}] and jar hash is [{}].",
-						String.join(",", contracts), jarHash);
+						String.join(",", scannedCordapp.contracts), scannedCordapp.jarHash);
 			}
 
-			initWhitelistedContractImplementations(jarHash, contracts);
+			addContractImplementations(newWhitelistedContractImplementations, scannedCordapp.jarHash,
+					scannedCordapp.contracts);
+			if (scannedCordapp.selfContained) {
+				newScanCache.setProperty(scannedCordapp.jarHash.toString(), String.join(",", scannedCordapp.contracts));
+			}
+
+			putCachedJarHash(newScanCache, scannedCordapp.cordapp, scannedCordapp.size, scannedCordapp.lastModified,
+					scannedCordapp.hashedAt, scannedCordapp.jarHash);
+		}
+
+		saveScanCache(newScanCache);
+		scanCache = newScanCache;
+		return Collections.unmodifiableMap(newWhitelistedContractImplementations);
+	}
+
+	/**
+	 * @param cordapp
+	 * @param scanCache
+	 * @param session   resolves supertypes in the other jars
+	 * @return null if the jar cannot be read
+	 */
+	private ScannedCordapp scanCordapp(File cordapp, Properties scanCache, ContractClassScanner.Session session) {
+		try {
+			/**
+			 * Read before hashing, so a jar modified while it is hashed is hashed again
+			 * next time.
+			 */
+			long hashedAt = System.currentTimeMillis();
+			long size = cordapp.length();
+			long lastModified = cordapp.lastModified();
+			SecureHash jarHash = getJarHash(cordapp, size, lastModified, scanCache);
+
+			String cachedContracts = scanCache.getProperty(jarHash.toString());
+			if (cachedContracts != null) {
+				LOGGER.debug("Reuse the scan result of [{}].", cordapp.getName());
+				List<String> contracts = cachedContracts.isEmpty() ? Collections.emptyList()
+						: Arrays.asList(cachedContracts.split(","));
+				return new ScannedCordapp(cordapp, size, lastModified, hashedAt, jarHash, contracts, true);
+			}
+
+			ContractClassScanner.ScanResult scanResult = session.scan(cordapp);
+			return new ScannedCordapp(cordapp, size, lastModified, hashedAt, jarHash, scanResult.getContracts(),
+					scanResult.isSelfContained());
+		} catch (IOException e) {
+			LOGGER.error(String.format("Fail to scan [%s].", cordapp.getAbsolutePath()), e);
+			return null;
+		}
+	}
+
+	private Properties loadScanCache() {
+		Properties scanCache = new Properties();
+		File file = new File(NodeInfoStore.STORAGE_DIRECTORY, SCAN_CACHE);
+
+		if (!file.isFile()) {
+			return scanCache;
+		}
+
+		try (InputStream inputStream = new FileInputStream(file)) {
+			scanCache.load(inputStream);
+		} catch (IOException e) {
+			LOGGER.warn("Fail to read the CorDapp scan cache, all jars will be scanned.", e);
+			return new Properties();
+		}
+
+		if (!SCAN_CACHE_VERSION.equals(scanCache.getProperty(SCAN_CACHE_VERSION_KEY))) {
+			LOGGER.info("The CorDapp scan cache was written by another version and is ignored.");
+			return new Properties();
 		}
+
+		return scanCache;
 	}
 
-	private void initWhitelistedContractImplementations(SecureHash jarHash, List<String> contracts) {
+	private void saveScanCache(Properties scanCache) {
+		File directory = new File(NodeInfoStore.STORAGE_DIRECTORY);
+		File temporaryFile = new File(directory, SCAN_CACHE + ".tmp");
+
+		try {
+			Files.createDirectories(directory.toPath());
+
+			try (OutputStream outputStream = new FileOutputStream(temporaryFile)) {
+				scanCache.store(outputStream, "Contract implementations keyed by CorDapp jar hash");
+			}
+
+			Files.move(temporaryFile.toPath(), new File(directory, SCAN_CACHE).toPath(),
+					StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			LOGGER.warn("Fail to write the CorDapp scan cache.", e);
+		}
+	}
+
+	private void addContractImplementations(Map<String, List<SecureHash>> whitelistedContractImplementations,
+			SecureHash jarHash, List<String> contracts) {
 		for (String contract : contracts) {
 			List<SecureHash> jarHashList = whitelistedContractImplementations.get(contract);
 
@@ -105,67 +306,112 @@ public class WhitelistedContractImplManager {
 	}
 
 	/**
+	 * Hashes the jar in fixed-size chunks read through a file channel, so that
+	 * the memory needed does not depend on the size of the jar. Memory mapping is
+	 * not used because a mapped region is only released by the garbage collector.
+	 * 
 	 * @see the 252nd line of NetworkBootstrapper
 	 * @param cordapp
 	 * @return
 	 * @throws IOException
 	 */
-	private SecureHash getJarHash(File cordapp) throws IOException {
-		try (InputStream inputStream = new FileInputStream(cordapp);
-				HashingInputStream hashingInputStream = new HashingInputStream(Hashing.sha256(), inputStream)) {
-			if (hashingInputStream.read(new byte[hashingInputStream.available()]) < 0) {
-				LOGGER.warn("Fail to read [{}].", cordapp.getAbsolutePath());
+	static SecureHash getJarHash(File cordapp) throws IOException {
+		MessageDigest messageDigest = newSha256MessageDigest();
+		ByteBuffer buffer = ByteBuffer.allocate(HASH_CHUNK_SIZE);
+
+		try (FileChannel fileChannel = FileChannel.open(cordapp.toPath(), StandardOpenOption.READ)) {
+			while (fileChannel.read(buffer) >= 0) {
+				messageDigest.update(buffer.array(), 0, buffer.position());
+				buffer.clear();
 			}
-			return new SecureHash.SHA256(hashingInputStream.hash().asBytes());
+		}
+
+		return new SecureHash.SHA256(messageDigest.digest());
+	}
+
+	private static MessageDigest newSha256MessageDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("This exception should not occur.", e);
 		}
 	}
 
 	/**
-	 * Scans the jar for contracts.
-	 * 
-	 * @see the 21st line of ClassloaderUtils.kt
 	 * @param cordapp
-	 * @return found contract class names or empty if none found
-	 * @throws URISyntaxException
+	 * @param size         read before hashing
+	 * @param lastModified read before hashing
+	 * @param scanCache
+	 * @return the hash recorded for the jar if its size and modification time are
+	 *         still the same, otherwise the hash of its content
 	 * @throws IOException
 	 */
-	private List<String> scanJarForContracts(File cordapp) throws URISyntaxException, IOException {
-		ClassLoader currentClassLoader = Contract.class.getClassLoader();
-
-		List<String> contracts = buildContractImplList(cordapp, currentClassLoader);
-		List<String> distinctContracts = contracts.stream().distinct().collect(Collectors.toList());
+	static SecureHash getJarHash(File cordapp, long size, long lastModified, Properties scanCache)
+			throws IOException {
+		SecureHash jarHash = getCachedJarHash(cordapp, size, lastModified, scanCache);
+		return jarHash == null ? getJarHash(cordapp) : jarHash;
+	}
 
-		try (URLClassLoader urlClassLoader = new URLClassLoader(new URL[] { cordapp.toURI().toURL() },
-				currentClassLoader)) {
-			removeUninstantiableContracts(distinctContracts, urlClassLoader);
+	/**
+	 * @param scanCache
+	 * @param cordapp
+	 * @param size         read before hashing
+	 * @param lastModified read before hashing
+	 * @param hashedAt     when hashing started
+	 * @param jarHash
+	 */
+	static void putCachedJarHash(Properties scanCache, File cordapp, long size, long lastModified, long hashedAt,
+			SecureHash jarHash) {
+		if (hashedAt - lastModified < MODIFICATION_TIME_GRANULARITY_MILLIS) {
+			return;
 		}
 
-		return distinctContracts;
-	}
-
-	private List<String> buildContractImplList(File cordapp, ClassLoader currentClassLoader) throws URISyntaxException {
-		URI sourceCodeURI = Contract.class.getProtectionDomain().getCodeSource().getLocation().toURI();
-		ScanResult scanResult = new FastClasspathScanner().addClassLoader(currentClassLoader)
-				.overrideClasspath(cordapp.getAbsolutePath(), Paths.get(sourceCodeURI).toString()).scan();
-		return scanResult.getNamesOfClassesImplementing(Contract.class.getName());
+		scanCache.setProperty(FILE_KEY_PREFIX + cordapp.getAbsolutePath(),
+				String.join(",", String.valueOf(size), String.valueOf(lastModified), jarHash.toString()));
 	}
 
 	/**
-	 * Only keep instantiable contracts.
-	 * 
-	 * @param contracts
-	 * @param urlClassLoader
+	 * @param cordapp
+	 * @param scanCache
+	 * @return the hash recorded for the jar if its size and modification time are
+	 *         still the same, otherwise null
 	 */
-	private void removeUninstantiableContracts(List<String> contracts, URLClassLoader urlClassLoader) {
-		contracts.removeIf(contract -> {
-			try {
-				Class<?> clazz = urlClassLoader.loadClass(contract);
-				return clazz.isInterface() || Modifier.isAbstract(clazz.getModifiers());
-			} catch (ClassNotFoundException e) {
-				LOGGER.error("The class file is probably deleted illegally.", e);
-				return true;
-			}
-		});
+	private static SecureHash getCachedJarHash(File cordapp, long size, long lastModified, Properties scanCache) {
+		String cachedJarHash = scanCache.getProperty(FILE_KEY_PREFIX + cordapp.getAbsolutePath());
+
+		if (cachedJarHash == null) {
+			return null;
+		}
+
+		String[] sizeModifiedAndHash = cachedJarHash.split(",");
+
+		if (sizeModifiedAndHash.length != 3 || !String.valueOf(size).equals(sizeModifiedAndHash[0])
+				|| !String.valueOf(lastModified).equals(sizeModifiedAndHash[1])) {
+			return null;
+		}
+
+		return SecureHash.parse(sizeModifiedAndHash[2]);
+	}
+
+	private static class ScannedCordapp {
+		private final File cordapp;
+		private final long size;
+		private final long lastModified;
+		private final long hashedAt;
+		private final SecureHash jarHash;
+		private final List<String> contracts;
+		private final boolean selfContained;
+
+		private ScannedCordapp(File cordapp, long size, long lastModified, long hashedAt, SecureHash jarHash,
+				List<String> contracts, boolean selfContained) {
+			this.cordapp = cordapp;
+			this.size = size;
+			this.lastModified = lastModified;
+			this.hashedAt = hashedAt;
+			this.jarHash = jarHash;
+			this.contracts = contracts;
+			this.selfContained = selfContained;
+		}
 	}
 
 	public Map<String, List<SecureHash>> getWhitelistedContractImplementations() {
@@ -1,6 +1,10 @@
 package com.patrick.corda.networkmap.web;
 
+import static com.patrick.corda.networkmap.web.RequestBodyReader.readBody;
+
 import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.security.SignatureException;
 
 import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
@@ -11,9 +15,16 @@ import javax.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.patrick.corda.networkmap.core.NetworkParametersAckManager;
+import com.patrick.corda.networkmap.core.SerializationEnvironmentManager;
+
+import net.corda.core.crypto.SecureHash;
+import net.corda.core.crypto.SignedData;
+
 /**
  * For the node operator to acknowledge network map that new parameters were
- * accepted forture update.
+ * accepted forture update. The body is the hash of the accepted parameters
+ * signed by the node.
  * 
  * @author Patrick Pan
  *
@@ -27,8 +38,39 @@ public class AckNetworkParameters extends HttpServlet {
 	private static final long serialVersionUID = -3659930737716743214L;
 	private static final Logger LOGGER = LoggerFactory.getLogger("cordaNetworkMapLogger");
 
+	/**
+	 * A signed hash is a few hundred bytes.
+	 */
+	private static final int MAX_ACK_SIZE = 64 * 1024;
+
 	@Override
 	public void doPost(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
 		LOGGER.info("Receive a new request for acknowledging network map.");
+
+		try {
+			acknowledge(req);
+		} catch (RequestBodyTooLargeException e) {
+			LOGGER.error("The request is invalid!", e);
+			resp.setStatus(HttpURLConnection.HTTP_ENTITY_TOO_LARGE);
+		} catch (SignatureException | IllegalArgumentException e) {
+			LOGGER.error("The request is invalid!", e);
+			resp.setStatus(HttpURLConnection.HTTP_BAD_REQUEST);
+		} catch (IOException e) {
+			LOGGER.error("This exception should not occur.", e);
+			resp.setStatus(HttpURLConnection.HTTP_INTERNAL_ERROR);
+		} catch (Exception e) {
+			LOGGER.error("Unexpected exception occurs.", e);
+			resp.setStatus(HttpURLConnection.HTTP_INTERNAL_ERROR);
+		}
+	}
+
+	private void acknowledge(HttpServletRequest req)
+			throws RequestBodyTooLargeException, IOException, SignatureException {
+		byte[] body = readBody(req, MAX_ACK_SIZE);
+
+		@SuppressWarnings("unchecked")
+		SignedData<SecureHash> signedParametersHash = SerializationEnvironmentManager.getInstance()
+				.deserializeObjectOnContext(SignedData.class, body);
+		NetworkParametersAckManager.getInstance().acknowledge(signedParametersHash);
 	}
 }
@@ -0,0 +1,36 @@
+package com.patrick.corda.networkmap.web;
+
+import java.io.IOException;
+
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.patrick.corda.networkmap.core.MetricsRegistry;
+
+/**
+ * Writes every metric in the Prometheus text format for scraping. The same
+ * metrics are visible over JMX.
+ *
+ * @author Patrick Pan
+ *
+ */
+@WebServlet("/network-map/metrics")
+public class GetMetrics extends HttpServlet {
+
+	/**
+	 *
+	 */
+	private static final long serialVersionUID = -2395406713418590631L;
+
+	@Override
+	protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+		resp.setContentType("text/plain; version=0.0.4");
+		resp.setCharacterEncoding("UTF-8");
+		resp.setHeader("Cache-Control", "no-store");
+
+		MetricsRegistry.getInstance().writeTo(resp.getWriter());
+	}
+}
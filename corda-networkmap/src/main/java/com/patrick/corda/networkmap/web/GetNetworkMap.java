@@ -1,6 +1,6 @@
 package com.patrick.corda.networkmap.web;
 
-import static com.patrick.corda.networkmap.Utils.writeByteArrayToResponse;
+import static com.patrick.corda.networkmap.Utils.writeSignedArtifactToResponse;
 
 import java.io.IOException;
 import java.net.HttpURLConnection;
@@ -15,6 +15,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.patrick.corda.networkmap.core.NetworkMapManager;
+import com.patrick.corda.networkmap.core.NetworkMapSnapshot;
 
 /**
  * Retrieve the current signed public network map object. The entire object is
@@ -36,7 +37,7 @@ public class GetNetworkMap extends HttpServlet {
 	public void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
 		LOGGER.info("Receive a new request for retrieving the current signed public network map object.");
 		try {
-			getSignedNetworkMap(resp);
+			getSignedNetworkMap(req, resp);
 		} catch (IOException e) {
 			LOGGER.error("This exception should not occur.", e);
 			resp.setStatus(HttpURLConnection.HTTP_INTERNAL_ERROR);
@@ -46,8 +47,13 @@ public class GetNetworkMap extends HttpServlet {
 		}
 	}
 
-	private void getSignedNetworkMap(HttpServletResponse resp) throws IOException {
-		byte[] signedNetworkMapByteArray = NetworkMapManager.getInstance().getSignedNetworkMapByteArray();
-		writeByteArrayToResponse(resp, signedNetworkMapByteArray);
+	private void getSignedNetworkMap(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+		NetworkMapSnapshot snapshot = NetworkMapManager.getInstance().getSnapshot();
+
+		/**
+		 * Lets the client long-poll "/network-map/poll" for the next version.
+		 */
+		resp.setHeader(PollNetworkMap.NETWORK_MAP_VERSION, String.valueOf(snapshot.getVersion()));
+		writeSignedArtifactToResponse(req, resp, snapshot.getSignedArtifact());
 	}
 }
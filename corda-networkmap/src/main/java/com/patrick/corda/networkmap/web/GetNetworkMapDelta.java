@@ -0,0 +1,82 @@
+package com.patrick.corda.networkmap.web;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.HttpURLConnection;
+
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.patrick.corda.networkmap.core.NetworkMapDelta;
+import com.patrick.corda.networkmap.core.NetworkMapManager;
+
+/**
+ * Retrieve the node info hashes added to and removed from the network map
+ * since the version given as the "since" parameter. The body has one line per
+ * hash, prefixed with "+" if it was added or "-" if it was removed, and the
+ * version it leads to is returned in the "X-Network-Map-Version" header. If
+ * the version is no longer known, "410 Gone" tells the client to fetch the
+ * whole network map again.
+ *
+ * @author Patrick Pan
+ *
+ */
+@WebServlet("/network-map/delta")
+public class GetNetworkMapDelta extends HttpServlet {
+
+	/**
+	 *
+	 */
+	private static final long serialVersionUID = -4630539410585125830L;
+	private static final Logger LOGGER = LoggerFactory.getLogger("cordaNetworkMapLogger");
+	private static final String SINCE = "since";
+
+	@Override
+	protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+		LOGGER.debug("Receive a new request for retrieving the changes of the network map.");
+
+		try {
+			getNetworkMapDelta(req, resp);
+		} catch (IllegalArgumentException e) {
+			LOGGER.error("The request is invalid!", e);
+			resp.setStatus(HttpURLConnection.HTTP_BAD_REQUEST);
+		} catch (IOException e) {
+			LOGGER.error("This exception should not occur.", e);
+			resp.setStatus(HttpURLConnection.HTTP_INTERNAL_ERROR);
+		} catch (Exception e) {
+			LOGGER.error("Unexpected exception occurs.", e);
+			resp.setStatus(HttpURLConnection.HTTP_INTERNAL_ERROR);
+		}
+	}
+
+	private void getNetworkMapDelta(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+		String since = req.getParameter(SINCE);
+
+		if (since == null) {
+			throw new IllegalArgumentException("The parameter [since] is missing.");
+		}
+
+		NetworkMapDelta delta = NetworkMapManager.getInstance().getDeltaSince(Long.parseLong(since));
+		resp.setHeader("Cache-Control", "no-cache");
+
+		if (delta == null) {
+			LOGGER.debug("The version [{}] is no longer in the history of the network map.", since);
+			resp.setStatus(HttpURLConnection.HTTP_GONE);
+			return;
+		}
+
+		resp.setHeader(PollNetworkMap.NETWORK_MAP_VERSION, String.valueOf(delta.getToVersion()));
+		resp.setContentType("text/plain");
+		resp.setCharacterEncoding("US-ASCII");
+
+		PrintWriter writer = resp.getWriter();
+		delta.getAddedHashes().forEach(hash -> writer.append('+').append(hash.toString()).append('\n'));
+		delta.getRemovedHashes().forEach(hash -> writer.append('-').append(hash.toString()).append('\n'));
+	}
+}
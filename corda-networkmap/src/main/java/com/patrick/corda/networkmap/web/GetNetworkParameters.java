@@ -1,6 +1,7 @@
 package com.patrick.corda.networkmap.web;
 
-import static com.patrick.corda.networkmap.Utils.writeByteArrayToResponse;
+import static com.patrick.corda.networkmap.Utils.getHash;
+import static com.patrick.corda.networkmap.Utils.writeSignedArtifactToResponse;
 
 import java.io.IOException;
 import java.net.HttpURLConnection;
@@ -15,6 +16,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.patrick.corda.networkmap.core.NetworkParametersManager;
+import com.patrick.corda.networkmap.core.SignedArtifact;
+
+import net.corda.core.crypto.SecureHash;
 
 /**
  * Retrieve the signed network parameters. The entire object is signed with the
@@ -38,7 +42,7 @@ public class GetNetworkParameters extends HttpServlet {
 		LOGGER.debug("Request URI is [{}].", req.getRequestURI());
 
 		try {
-			writeByteArrayToResponse(resp, NetworkParametersManager.getInstance().getSignedNetworkByteArray());
+			getSignedNetworkParameters(req, resp);
 		} catch (IllegalArgumentException e) {
 			LOGGER.error("The request is invalid!", e);
 			resp.setStatus(HttpURLConnection.HTTP_BAD_REQUEST);
@@ -50,4 +54,23 @@ public class GetNetworkParameters extends HttpServlet {
 			resp.setStatus(HttpURLConnection.HTTP_INTERNAL_ERROR);
 		}
 	}
+
+	/**
+	 * Nodes ask for the hash the network map refers to, which is either the
+	 * current network parameters or the staged ones announced by a
+	 * "ParametersUpdate". Any version signed before is served as well.
+	 */
+	private void getSignedNetworkParameters(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+		SecureHash hash = getHash(req.getRequestURI());
+		SignedArtifact signedNetworkParameters = NetworkParametersManager.getInstance()
+				.getSignedNetworkParametersArtifact(hash);
+
+		if (signedNetworkParameters == null) {
+			LOGGER.warn("The network parameters [{}] are unknown.", hash);
+			resp.setStatus(HttpURLConnection.HTTP_NOT_FOUND);
+			return;
+		}
+
+		writeSignedArtifactToResponse(req, resp, signedNetworkParameters);
+	}
 }
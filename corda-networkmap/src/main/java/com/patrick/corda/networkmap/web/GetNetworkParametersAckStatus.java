@@ -0,0 +1,86 @@
+package com.patrick.corda.networkmap.web;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.HttpURLConnection;
+
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.patrick.corda.networkmap.core.NetworkParametersAckManager;
+import com.patrick.corda.networkmap.core.NetworkParametersManager;
+import com.patrick.corda.networkmap.core.NodeInfoHashManager;
+
+import net.corda.core.crypto.SecureHash;
+import net.corda.core.identity.CordaX500Name;
+
+/**
+ * Reports how many nodes have accepted every version of the network
+ * parameters, and which registered nodes have not accepted the version given
+ * by the "hash" parameter yet. Without it, the staged version is reported, or
+ * the current one if none is staged.
+ * 
+ * @author Patrick Pan
+ *
+ */
+@WebServlet("/network-map/ack-parameters/status")
+public class GetNetworkParametersAckStatus extends HttpServlet {
+
+	/**
+	 * 
+	 */
+	private static final long serialVersionUID = -1409713460516409874L;
+	private static final Logger LOGGER = LoggerFactory.getLogger("cordaNetworkMapLogger");
+
+	@Override
+	protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+		try {
+			writeStatus(req, resp);
+		} catch (IllegalArgumentException e) {
+			LOGGER.error("The request is invalid!", e);
+			resp.setStatus(HttpURLConnection.HTTP_BAD_REQUEST);
+		} catch (Exception e) {
+			LOGGER.error("Unexpected exception occurs.", e);
+			resp.setStatus(HttpURLConnection.HTTP_INTERNAL_ERROR);
+		}
+	}
+
+	private void writeStatus(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+		SecureHash hash = getHash(req);
+		NetworkParametersAckManager ackManager = NetworkParametersAckManager.getInstance();
+
+		resp.setContentType("text/plain");
+		resp.setCharacterEncoding("UTF-8");
+		resp.setHeader("Cache-Control", "no-store");
+
+		PrintWriter writer = resp.getWriter();
+		writer.printf("parametersHash=%s%n", hash);
+		writer.printf("nodeCount=%d%n", NodeInfoHashManager.getInstance().getNodeCount());
+		writer.printf("acceptanceCount=%d%n", ackManager.getAcceptanceCount(hash));
+
+		ackManager.getAcceptanceCounts()
+				.forEach((acceptedHash, count) -> writer.printf("acceptanceCount.%s=%d%n", acceptedHash, count));
+
+		for (CordaX500Name name : ackManager.getNodesNotAccepted(hash)) {
+			writer.printf("notAccepted=%s%n", name);
+		}
+	}
+
+	private SecureHash getHash(HttpServletRequest req) {
+		String hash = req.getParameter("hash");
+
+		if (hash != null) {
+			return SecureHash.parse(hash);
+		}
+
+		NetworkParametersManager networkParametersManager = NetworkParametersManager.getInstance();
+		SecureHash stagedHash = networkParametersManager.getStagedNetworkParametersHash();
+		return stagedHash == null ? networkParametersManager.getSignedNetworkParametersHash() : stagedHash;
+	}
+}
@@ -1,7 +1,7 @@
 package com.patrick.corda.networkmap.web;
 
 import static com.patrick.corda.networkmap.Utils.getHashString;
-import static com.patrick.corda.networkmap.Utils.writeByteArrayToResponse;
+import static com.patrick.corda.networkmap.Utils.writeSignedArtifactToResponse;
 
 import java.io.IOException;
 import java.net.HttpURLConnection;
@@ -16,9 +16,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.patrick.corda.networkmap.core.NodeInfoHashManager;
-import com.patrick.corda.networkmap.core.SerializationEnvironmentManager;
-
-import net.corda.nodeapi.internal.SignedNodeInfo;
+import com.patrick.corda.networkmap.core.SignedArtifact;
 
 /**
  * Retrieve a signed "NodeInfo" as specified in the network map object.
@@ -56,8 +54,14 @@ public class GetNodeInfo extends HttpServlet {
 
 	private void getSignedNodeInfo(HttpServletRequest req, HttpServletResponse resp) throws IOException {
 		String hash = getHashString(req.getRequestURI());
-		SignedNodeInfo signedNodeInfo = NodeInfoHashManager.getInstance().getSignedNodeInfo(hash);
-		writeByteArrayToResponse(resp,
-				SerializationEnvironmentManager.getInstance().serializeObjectOnContext(signedNodeInfo).getBytes());
+		SignedArtifact signedNodeInfo = NodeInfoHashManager.getInstance().getSignedNodeInfoArtifact(hash);
+
+		if (signedNodeInfo == null) {
+			LOGGER.warn("The NodeInfo [{}] has not been registered.", hash);
+			resp.setStatus(HttpURLConnection.HTTP_NOT_FOUND);
+			return;
+		}
+
+		writeSignedArtifactToResponse(req, resp, signedNodeInfo);
 	}
 }
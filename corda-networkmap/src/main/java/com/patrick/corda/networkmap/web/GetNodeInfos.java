@@ -0,0 +1,138 @@
+package com.patrick.corda.networkmap.web;
+
+import static com.patrick.corda.networkmap.web.RequestBodyReader.readBody;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.patrick.corda.networkmap.core.NodeInfoHashManager;
+
+import io.netty.handler.codec.http.HttpHeaderValues;
+import net.corda.core.crypto.SecureHash;
+
+/**
+ * Retrieve many signed "NodeInfo" objects in one request. The body lists one
+ * node info hash per line. For every hash, in the same order, the response
+ * contains the 32 bytes of the hash, the length of the serialized
+ * "SignedNodeInfo" as a 4 byte big-endian integer and the bytes the node
+ * uploaded. A length of -1 without any bytes means the hash is unknown.
+ *
+ * @author Patrick Pan
+ *
+ */
+@WebServlet("/network-map/node-infos")
+public class GetNodeInfos extends HttpServlet {
+
+	/**
+	 *
+	 */
+	private static final long serialVersionUID = 7303925158424186581L;
+	private static final Logger LOGGER = LoggerFactory.getLogger("cordaNetworkMapLogger");
+
+	/**
+	 * The maximum number of hashes in one request.
+	 */
+	private static final int MAX_HASHES = Integer.getInteger("corda.networkmap.batch.maxHashes", 10000);
+
+	private static final int HASH_LENGTH = 32;
+	private static final int UNKNOWN = -1;
+
+	/**
+	 * A hash in hexadecimal followed by CR LF.
+	 */
+	private static final int MAX_LINE_LENGTH = HASH_LENGTH * 2 + 2;
+
+	@Override
+	protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+		try {
+			getSignedNodeInfos(req, resp);
+		} catch (RequestBodyTooLargeException e) {
+			LOGGER.error("The request is invalid!", e);
+			resp.setStatus(HttpURLConnection.HTTP_ENTITY_TOO_LARGE);
+		} catch (IllegalArgumentException e) {
+			LOGGER.error("The request is invalid!", e);
+			resp.setStatus(HttpURLConnection.HTTP_BAD_REQUEST);
+		} catch (IOException e) {
+			LOGGER.error("This exception should not occur.", e);
+			resp.setStatus(HttpURLConnection.HTTP_INTERNAL_ERROR);
+		} catch (Exception e) {
+			LOGGER.error("Unexpected exception occurs.", e);
+			resp.setStatus(HttpURLConnection.HTTP_INTERNAL_ERROR);
+		}
+	}
+
+	private void getSignedNodeInfos(HttpServletRequest req, HttpServletResponse resp)
+			throws RequestBodyTooLargeException, IOException {
+		List<SecureHash> hashes = readHashes(req);
+		List<byte[]> byteArrays = new ArrayList<>(hashes.size());
+		NodeInfoHashManager nodeInfoHashManager = NodeInfoHashManager.getInstance();
+		long contentLength = 0;
+		int unknown = 0;
+
+		for (SecureHash hash : hashes) {
+			byte[] byteArray = nodeInfoHashManager.getSignedNodeInfoByteArray(hash.toString());
+			byteArrays.add(byteArray);
+			contentLength += HASH_LENGTH + 4 + (byteArray == null ? 0 : byteArray.length);
+
+			if (byteArray == null) {
+				unknown++;
+			}
+		}
+
+		LOGGER.info("Receive a new request for retrieving [{}] signed NodeInfo objects, [{}] of them are unknown.",
+				hashes.size(), unknown);
+
+		resp.setContentType(HttpHeaderValues.APPLICATION_OCTET_STREAM.toString());
+		resp.setContentLengthLong(contentLength);
+
+		DataOutputStream outputStream = new DataOutputStream(resp.getOutputStream());
+
+		for (int i = 0; i < hashes.size(); i++) {
+			byte[] byteArray = byteArrays.get(i);
+			outputStream.write(hashes.get(i).getBytes());
+
+			if (byteArray == null) {
+				outputStream.writeInt(UNKNOWN);
+			} else {
+				outputStream.writeInt(byteArray.length);
+				outputStream.write(byteArray);
+			}
+		}
+
+		outputStream.flush();
+	}
+
+	private List<SecureHash> readHashes(HttpServletRequest req) throws RequestBodyTooLargeException, IOException {
+		List<SecureHash> hashes = new ArrayList<>();
+		String body = new String(readBody(req, MAX_HASHES * MAX_LINE_LENGTH), StandardCharsets.US_ASCII);
+
+		for (String line : body.split("\n")) {
+			line = line.trim();
+
+			if (line.isEmpty()) {
+				continue;
+			}
+
+			if (hashes.size() == MAX_HASHES) {
+				throw new IllegalArgumentException(String.format("More than [%d] hashes are requested.", MAX_HASHES));
+			}
+
+			hashes.add(SecureHash.parse(line));
+		}
+
+		return hashes;
+	}
+}
@@ -0,0 +1,43 @@
+package com.patrick.corda.networkmap.web;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.patrick.corda.networkmap.core.NodeInfoPublisher;
+
+/**
+ * Reports how busy the NodeInfo publication queue is, so that operators and
+ * load balancers can see publishers being throttled. It never waits for the
+ * queue and so stays responsive under a registration storm.
+ * 
+ * @author Patrick Pan
+ *
+ */
+@WebServlet("/network-map/publish/status")
+public class GetPublishQueueStatus extends HttpServlet {
+
+	/**
+	 * 
+	 */
+	private static final long serialVersionUID = 4212896873180254177L;
+
+	@Override
+	protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+		NodeInfoPublisher publisher = NodeInfoPublisher.getInstance();
+
+		resp.setContentType("text/plain");
+		resp.setCharacterEncoding("UTF-8");
+		resp.setHeader("Cache-Control", "no-store");
+
+		PrintWriter writer = resp.getWriter();
+		writer.printf("queueDepth=%d%n", publisher.getQueueDepth());
+		writer.printf("queueCapacity=%d%n", publisher.getQueueCapacity());
+		writer.printf("activeCount=%d%n", publisher.getActiveCount());
+	}
+}
@@ -5,6 +5,10 @@ import javax.servlet.ServletContextListener;
 import javax.servlet.annotation.WebListener;
 
 import com.patrick.corda.networkmap.core.NetworkMapCertificateManager;
+import com.patrick.corda.networkmap.core.NetworkMapRefreshScheduler;
+import com.patrick.corda.networkmap.core.NetworkParametersManager;
+import com.patrick.corda.networkmap.core.NodeInfoHashManager;
+import com.patrick.corda.networkmap.core.NodeInfoPublisher;
 import com.patrick.corda.networkmap.core.SerializationEnvironmentManager;
 
 /**
@@ -19,5 +23,16 @@ public class NetworkMapServletContextListener implements ServletContextListener
 	public void contextInitialized(ServletContextEvent sce) {
 		NetworkMapCertificateManager.getInstance().init();
 		SerializationEnvironmentManager.getInstance().init();
+		SerializationEnvironmentManager.getInstance().warmUp();
+		NodeInfoHashManager.getInstance().init();
+		NetworkParametersManager.getInstance().startWatching();
+	}
+
+	@Override
+	public void contextDestroyed(ServletContextEvent sce) {
+		NetworkParametersManager.getInstance().destroy();
+		NodeInfoPublisher.getInstance().destroy();
+		NetworkMapRefreshScheduler.getInstance().destroy();
+		NodeInfoHashManager.getInstance().destroy();
 	}
 }
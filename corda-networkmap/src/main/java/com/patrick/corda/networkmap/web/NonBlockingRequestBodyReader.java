@@ -0,0 +1,115 @@
+package com.patrick.corda.networkmap.web;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Reads a request body with non-blocking IO, so that a slow or trickling upload
+ * does not hold a request thread while its bytes arrive. Only what is already
+ * available is read whenever the container reports more data, and the size
+ * limit is enforced as in {@link RequestBodyReader}.
+ *
+ * @author Patrick Pan
+ *
+ */
+public class NonBlockingRequestBodyReader implements ReadListener {
+
+	private static final int CHUNK_SIZE = 16 * 1024;
+
+	private final ServletInputStream inputStream;
+	private final boolean lengthKnown;
+	private final int maxLength;
+	private final CompletableFuture<byte[]> future = new CompletableFuture<>();
+
+	private byte[] body;
+	private int length;
+
+	private NonBlockingRequestBodyReader(ServletInputStream inputStream, long contentLength, int maxLength) {
+		this.inputStream = inputStream;
+		this.lengthKnown = contentLength >= 0;
+		this.maxLength = maxLength;
+		this.body = new byte[lengthKnown ? (int) contentLength : Math.min(CHUNK_SIZE, maxLength + 1)];
+	}
+
+	/**
+	 * The request must be in asynchronous mode.
+	 *
+	 * @param req
+	 * @param maxLength the largest body accepted, in bytes
+	 * @return completes with the body, or exceptionally with a
+	 *         {@link RequestBodyTooLargeException} if the body is longer than
+	 *         "maxLength" or an {@link IOException} if it cannot be read or is
+	 *         shorter than its "Content-Length"
+	 * @throws IOException
+	 */
+	public static CompletableFuture<byte[]> readBody(HttpServletRequest req, int maxLength) throws IOException {
+		return readBody(req.getInputStream(), req.getContentLengthLong(), maxLength);
+	}
+
+	/**
+	 * @param inputStream
+	 * @param contentLength the declared length, or a negative value if unknown
+	 * @param maxLength
+	 * @return
+	 */
+	static CompletableFuture<byte[]> readBody(ServletInputStream inputStream, long contentLength, int maxLength) {
+		if (contentLength > maxLength) {
+			CompletableFuture<byte[]> future = new CompletableFuture<>();
+			future.completeExceptionally(new RequestBodyTooLargeException(String
+					.format("The request body of [%d] bytes is larger than the limit [%d].", contentLength, maxLength)));
+			return future;
+		}
+
+		NonBlockingRequestBodyReader reader = new NonBlockingRequestBodyReader(inputStream, contentLength, maxLength);
+		inputStream.setReadListener(reader);
+		return reader.future;
+	}
+
+	@Override
+	public void onDataAvailable() throws IOException {
+		while (!future.isDone() && !inputStream.isFinished() && inputStream.isReady()) {
+			if (length == body.length) {
+				if (lengthKnown) {
+					return;
+				}
+
+				body = Arrays.copyOf(body, Math.min(body.length * 2, maxLength + 1));
+			}
+
+			int hasRead = inputStream.read(body, length, body.length - length);
+
+			if (hasRead < 0) {
+				return;
+			}
+
+			length += hasRead;
+
+			if (length > maxLength) {
+				future.completeExceptionally(new RequestBodyTooLargeException(
+						String.format("The request body is larger than the limit [%d].", maxLength)));
+			}
+		}
+	}
+
+	@Override
+	public void onAllDataRead() throws IOException {
+		if (lengthKnown && length < body.length) {
+			future.completeExceptionally(new EOFException(
+					String.format("The request body ends after [%d] of [%d] bytes.", length, body.length)));
+			return;
+		}
+
+		future.complete(length == body.length ? body : Arrays.copyOf(body, length));
+	}
+
+	@Override
+	public void onError(Throwable t) {
+		future.completeExceptionally(t);
+	}
+}
@@ -0,0 +1,169 @@
+package com.patrick.corda.networkmap.web;
+
+import static com.patrick.corda.networkmap.Utils.isNotModified;
+import static com.patrick.corda.networkmap.Utils.writeSignedArtifactToResponse;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.DispatcherType;
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.patrick.corda.networkmap.core.NetworkMapListener;
+import com.patrick.corda.networkmap.core.NetworkMapManager;
+import com.patrick.corda.networkmap.core.NetworkMapSnapshot;
+import com.patrick.corda.networkmap.core.SignedArtifact;
+
+/**
+ * Long-poll for a newer signed network map. The client passes the version it
+ * holds as the "version" parameter or the entity tag it holds in
+ * "If-None-Match". If the network map has changed since, it is returned
+ * straight away. Otherwise the request is parked without holding a thread
+ * until a new network map is published, or answered with "304 Not Modified"
+ * once the timeout expires.
+ *
+ * @author Patrick Pan
+ *
+ */
+@WebServlet(urlPatterns = "/network-map/poll", asyncSupported = true)
+public class PollNetworkMap extends HttpServlet implements NetworkMapListener {
+
+	/**
+	 *
+	 */
+	private static final long serialVersionUID = 2985367734297466409L;
+	private static final Logger LOGGER = LoggerFactory.getLogger("cordaNetworkMapLogger");
+
+	/**
+	 * How long in milliseconds a request waits for a new network map.
+	 */
+	private static final long POLL_TIMEOUT_MILLIS = Long.getLong("corda.networkmap.poll.timeout", 30000L);
+
+	private static final String VERSION = "version";
+	static final String NETWORK_MAP_VERSION = "X-Network-Map-Version";
+
+	private final transient Set<AsyncContext> waitingContexts = ConcurrentHashMap.newKeySet();
+
+	@Override
+	public void init() throws ServletException {
+		NetworkMapManager.getInstance().addListener(this);
+	}
+
+	@Override
+	public void destroy() {
+		NetworkMapManager.getInstance().removeListener(this);
+
+		for (AsyncContext asyncContext : waitingContexts) {
+			if (waitingContexts.remove(asyncContext)) {
+				((HttpServletResponse) asyncContext.getResponse()).setStatus(HttpURLConnection.HTTP_UNAVAILABLE);
+				asyncContext.complete();
+			}
+		}
+	}
+
+	@Override
+	protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+		try {
+			pollSignedNetworkMap(req, resp);
+		} catch (IllegalArgumentException e) {
+			LOGGER.error("The request is invalid!", e);
+			resp.setStatus(HttpURLConnection.HTTP_BAD_REQUEST);
+		} catch (IOException e) {
+			LOGGER.error("This exception should not occur.", e);
+			resp.setStatus(HttpURLConnection.HTTP_INTERNAL_ERROR);
+		} catch (Exception e) {
+			LOGGER.error("Unexpected exception occurs.", e);
+			resp.setStatus(HttpURLConnection.HTTP_INTERNAL_ERROR);
+		}
+	}
+
+	@Override
+	public void onNetworkMapPublished(long version, SignedArtifact signedNetworkMapArtifact) {
+		for (AsyncContext asyncContext : waitingContexts) {
+			if (waitingContexts.remove(asyncContext)) {
+				asyncContext.dispatch();
+			}
+		}
+	}
+
+	private void pollSignedNetworkMap(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+		NetworkMapManager networkMapManager = NetworkMapManager.getInstance();
+		NetworkMapSnapshot snapshot = networkMapManager.getSnapshot();
+		long version = snapshot.getVersion();
+		SignedArtifact signedNetworkMap = snapshot.getSignedArtifact();
+
+		resp.setHeader("Cache-Control", "no-cache");
+		resp.setHeader(NETWORK_MAP_VERSION, String.valueOf(version));
+
+		/**
+		 * A request dispatched again by a publication always gets the new network
+		 * map.
+		 */
+		if (req.getDispatcherType() == DispatcherType.ASYNC || !isCurrent(req, version, signedNetworkMap)) {
+			writeSignedArtifactToResponse(req, resp, signedNetworkMap);
+			return;
+		}
+
+		AsyncContext asyncContext = RequestMetricsFilter.startAsync(req);
+		asyncContext.setTimeout(POLL_TIMEOUT_MILLIS);
+		asyncContext.addListener(new TimeoutListener());
+		waitingContexts.add(asyncContext);
+
+		/**
+		 * A network map published between reading the version and parking the
+		 * request would otherwise go unnoticed until the timeout.
+		 */
+		if (networkMapManager.getVersion() != version && waitingContexts.remove(asyncContext)) {
+			asyncContext.dispatch();
+		}
+	}
+
+	private boolean isCurrent(HttpServletRequest req, long version, SignedArtifact signedNetworkMap) {
+		String clientVersion = req.getParameter(VERSION);
+
+		if (clientVersion != null) {
+			return Long.parseLong(clientVersion) == version;
+		}
+
+		return isNotModified(req, signedNetworkMap);
+	}
+
+	private class TimeoutListener implements AsyncListener {
+
+		@Override
+		public void onTimeout(AsyncEvent event) throws IOException {
+			AsyncContext asyncContext = event.getAsyncContext();
+
+			if (waitingContexts.remove(asyncContext)) {
+				((HttpServletResponse) asyncContext.getResponse()).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+				asyncContext.complete();
+			}
+		}
+
+		@Override
+		public void onError(AsyncEvent event) throws IOException {
+			waitingContexts.remove(event.getAsyncContext());
+		}
+
+		@Override
+		public void onComplete(AsyncEvent event) throws IOException {
+			waitingContexts.remove(event.getAsyncContext());
+		}
+
+		@Override
+		public void onStartAsync(AsyncEvent event) throws IOException {
+		}
+	}
+}
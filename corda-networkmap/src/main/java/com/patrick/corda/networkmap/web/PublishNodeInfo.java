@@ -1,10 +1,13 @@
 package com.patrick.corda.networkmap.web;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.net.HttpURLConnection;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
@@ -15,10 +18,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.patrick.corda.networkmap.core.DuplicateCordaX500NameException;
-import com.patrick.corda.networkmap.core.NodeInfoHashManager;
-import com.patrick.corda.networkmap.core.SerializationEnvironmentManager;
-
-import net.corda.nodeapi.internal.SignedNodeInfo;
+import com.patrick.corda.networkmap.core.NetworkParametersManager;
+import com.patrick.corda.networkmap.core.NodeInfoPublisher;
 
 /**
  * For the node to upload its signed "NodeInfo" object to the network map.
@@ -26,7 +27,7 @@ import net.corda.nodeapi.internal.SignedNodeInfo;
  * @author Patrick Pan
  *
  */
-@WebServlet("/network-map/publish")
+@WebServlet(urlPatterns = "/network-map/publish", asyncSupported = true)
 public class PublishNodeInfo extends HttpServlet {
 
 	/**
@@ -34,6 +35,7 @@ public class PublishNodeInfo extends HttpServlet {
 	 */
 	private static final long serialVersionUID = 1577064056926226713L;
 	private static final Logger LOGGER = LoggerFactory.getLogger("cordaNetworkMapLogger");
+	private static final String RETRY_AFTER = "Retry-After";
 
 	@Override
 	public void doPost(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
@@ -41,36 +43,123 @@ public class PublishNodeInfo extends HttpServlet {
 		publishSignedNodeInfo(req, resp);
 	}
 
+	/**
+	 * The request is parked at once. Its body is read with non-blocking IO as it
+	 * arrives, then the node info is verified and registered by the
+	 * {@link NodeInfoPublisher}. The timeout covers both, so a slow upload cannot
+	 * hold the connection longer than a slow verification.
+	 */
 	private void publishSignedNodeInfo(HttpServletRequest req, HttpServletResponse resp) {
+		AsyncContext asyncContext = RequestMetricsFilter.startAsync(req);
+		Publication publication = new Publication(asyncContext, resp);
+
+		/**
+		 * A publication which hangs or is lost when the publisher shuts down must not
+		 * hold the connection forever.
+		 */
+		asyncContext.setTimeout(NodeInfoPublisher.getInstance().getTimeoutMillis());
+		asyncContext.addListener(publication);
+
+		try {
+			NonBlockingRequestBodyReader.readBody(req, NetworkParametersManager.getInstance().getMaxMessageSize())
+					.whenComplete((signedNodeInfoByteArray, throwable) -> {
+						if (throwable != null) {
+							publication.answer(throwable);
+						} else {
+							publish(signedNodeInfoByteArray, publication);
+						}
+					});
+		} catch (IOException | IllegalStateException e) {
+			publication.answer(e);
+		}
+	}
+
+	private void publish(byte[] signedNodeInfoByteArray, Publication publication) {
+		NodeInfoPublisher publisher = NodeInfoPublisher.getInstance();
+
 		try {
-			SignedNodeInfo signedNodeInfo = deserializeSignedNodeInfoOnContext(streamToByteArray(req.getInputStream()));
-			NodeInfoHashManager.getInstance().addNode(signedNodeInfo);
-		} catch (IOException e) {
-			LOGGER.error("This exception should not occur.", e);
+			publisher.publish(signedNodeInfoByteArray).whenComplete((result, throwable) -> publication.answer(throwable));
+		} catch (RejectedExecutionException e) {
+			LOGGER.warn("Reject the NodeInfo object because [{}] publications are already queued.",
+					publisher.getQueueDepth());
+			publication.answerUnavailable();
+		}
+	}
+
+	private void setErrorStatus(HttpServletResponse resp, Throwable throwable) {
+		if (throwable instanceof RequestBodyTooLargeException) {
+			LOGGER.error("The request is invalid!", throwable);
+			resp.setStatus(HttpURLConnection.HTTP_ENTITY_TOO_LARGE);
+		} else if (throwable instanceof IOException) {
+			LOGGER.error("This exception should not occur.", throwable);
 			resp.setStatus(HttpURLConnection.HTTP_INTERNAL_ERROR);
-		} catch (DuplicateCordaX500NameException e) {
-			LOGGER.error("The request is invalid!", e);
+		} else if (throwable instanceof DuplicateCordaX500NameException) {
+			LOGGER.error("The request is invalid!", throwable);
 			resp.setStatus(HttpURLConnection.HTTP_BAD_REQUEST);
-		} catch (Exception e) {
-			LOGGER.error("Exception occurs in PublishNodeInfo.execute.", e);
+		} else {
+			LOGGER.error("Exception occurs in PublishNodeInfo.execute.", throwable);
 			resp.setStatus(HttpURLConnection.HTTP_INTERNAL_ERROR);
 		}
 	}
 
-	private byte[] streamToByteArray(InputStream inputStream) throws IOException {
-		byte[] bytes = new byte[1024];
-		int hasRead = -1;
+	private void setUnavailableStatus(HttpServletResponse resp) {
+		resp.setStatus(HttpURLConnection.HTTP_UNAVAILABLE);
+		resp.setHeader(RETRY_AFTER, String.valueOf(NodeInfoPublisher.getInstance().getRetryAfterSeconds()));
+	}
 
-		try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
-			while (0 < (hasRead = inputStream.read(bytes))) {
-				outputStream.write(bytes, 0, hasRead);
+	/**
+	 * Answers the publisher once, either when the publication is done or when it
+	 * times out, whichever comes first.
+	 */
+	private class Publication implements AsyncListener {
+
+		private final AtomicBoolean answered = new AtomicBoolean();
+		private final AsyncContext asyncContext;
+		private final HttpServletResponse resp;
+
+		private Publication(AsyncContext asyncContext, HttpServletResponse resp) {
+			this.asyncContext = asyncContext;
+			this.resp = resp;
+		}
+
+		/**
+		 * @param throwable why the NodeInfo object is refused, or null if it is
+		 *                  registered
+		 */
+		private void answer(Throwable throwable) {
+			if (answered.compareAndSet(false, true)) {
+				if (throwable != null) {
+					setErrorStatus(resp, throwable);
+				}
+
+				asyncContext.complete();
 			}
+		}
 
-			return outputStream.toByteArray();
+		private void answerUnavailable() {
+			if (answered.compareAndSet(false, true)) {
+				setUnavailableStatus(resp);
+				asyncContext.complete();
+			}
 		}
-	}
 
-	private SignedNodeInfo deserializeSignedNodeInfoOnContext(byte[] bytes) {
-		return SerializationEnvironmentManager.getInstance().deserializeObjectOnContext(SignedNodeInfo.class, bytes);
+		@Override
+		public void onTimeout(AsyncEvent event) throws IOException {
+			LOGGER.warn("The NodeInfo object has not been registered within [{}] ms.",
+					NodeInfoPublisher.getInstance().getTimeoutMillis());
+			answerUnavailable();
+		}
+
+		@Override
+		public void onComplete(AsyncEvent event) throws IOException {
+		}
+
+		@Override
+		public void onError(AsyncEvent event) throws IOException {
+		}
+
+		@Override
+		public void onStartAsync(AsyncEvent event) throws IOException {
+		}
 	}
 }
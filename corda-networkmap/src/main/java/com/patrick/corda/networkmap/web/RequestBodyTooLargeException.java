@@ -0,0 +1,18 @@
+package com.patrick.corda.networkmap.web;
+
+/**
+ * 
+ * @author Patrick Pan
+ *
+ */
+public class RequestBodyTooLargeException extends Exception {
+
+	/**
+	 * 
+	 */
+	private static final long serialVersionUID = -2374919021866263517L;
+
+	public RequestBodyTooLargeException(String s) {
+		super(s);
+	}
+}
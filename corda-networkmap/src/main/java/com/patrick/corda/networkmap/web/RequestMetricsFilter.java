@@ -0,0 +1,162 @@
+package com.patrick.corda.networkmap.web;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRegistration;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.annotation.WebFilter;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServletRequest;
+
+import com.patrick.corda.networkmap.core.MetricsRegistry;
+import com.patrick.corda.networkmap.core.Timer;
+
+/**
+ * Counts the requests of every servlet and times them until the response is
+ * complete. The timers are looked up by servlet name in a map built once when
+ * the filter starts, so timing a request allocates nothing. Requests completed
+ * asynchronously, e.g. long polls and publications, are put into asynchronous
+ * mode with {@link #startAsync(HttpServletRequest)}, which registers a listener
+ * shared by all of them before anything can complete the request. Only the
+ * requests of servlets supporting asynchronous mode carry their start time as
+ * an attribute for that listener.
+ *
+ * @author Patrick Pan
+ *
+ */
+@WebFilter(urlPatterns = "/*", asyncSupported = true)
+public class RequestMetricsFilter implements Filter {
+
+	private static final String TIMER = RequestMetricsFilter.class.getName() + ".timer";
+	private static final String START_NANOS = RequestMetricsFilter.class.getName() + ".startNanos";
+	private static final String ASYNC = RequestMetricsFilter.class.getName() + ".async";
+
+	private static final AsyncListener COMPLETION_LISTENER = new CompletionListener();
+
+	private Map<String, Timer> timers;
+	private Set<String> asyncServletNames;
+
+	@Override
+	public void init(FilterConfig filterConfig) throws ServletException {
+		Map<String, Timer> servletTimers = new HashMap<>();
+		Set<String> asyncServlets = new HashSet<>();
+		MetricsRegistry metricsRegistry = MetricsRegistry.getInstance();
+
+		for (ServletRegistration registration : filterConfig.getServletContext().getServletRegistrations().values()) {
+			String className = registration.getClassName();
+
+			if (className != null && className.startsWith(getClass().getPackage().getName() + ".")) {
+				servletTimers.put(registration.getName(),
+						metricsRegistry.timer("networkmap_request_seconds", "Time spent serving a request.",
+								"endpoint", className.substring(className.lastIndexOf('.') + 1)));
+
+				if (isAsyncSupported(className)) {
+					asyncServlets.add(registration.getName());
+				}
+			}
+		}
+
+		timers = servletTimers;
+		asyncServletNames = asyncServlets;
+	}
+
+	private boolean isAsyncSupported(String className) {
+		try {
+			WebServlet webServlet = Class.forName(className, false, getClass().getClassLoader())
+					.getAnnotation(WebServlet.class);
+			return webServlet != null && webServlet.asyncSupported();
+		} catch (ClassNotFoundException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Puts the request into asynchronous mode, timing it until it completes if the
+	 * filter times it.
+	 *
+	 * @param req
+	 * @return the context of the request
+	 */
+	public static AsyncContext startAsync(HttpServletRequest req) {
+		AsyncContext asyncContext = req.startAsync();
+
+		if (req.getAttribute(TIMER) != null) {
+			req.setAttribute(ASYNC, Boolean.TRUE);
+			asyncContext.addListener(COMPLETION_LISTENER);
+		}
+
+		return asyncContext;
+	}
+
+	@Override
+	public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+			throws IOException, ServletException {
+		String servletName = ((HttpServletRequest) request).getHttpServletMapping().getServletName();
+		Timer timer = timers.get(servletName);
+
+		if (timer == null) {
+			chain.doFilter(request, response);
+			return;
+		}
+
+		long start = System.nanoTime();
+
+		if (asyncServletNames.contains(servletName)) {
+			request.setAttribute(TIMER, timer);
+			request.setAttribute(START_NANOS, start);
+		}
+
+		try {
+			chain.doFilter(request, response);
+		} finally {
+			/**
+			 * The shared listener times the request once it completes.
+			 */
+			if (request.getAttribute(ASYNC) == null) {
+				timer.record(System.nanoTime() - start);
+			}
+		}
+	}
+
+	@Override
+	public void destroy() {
+	}
+
+	private static class CompletionListener implements AsyncListener {
+
+		@Override
+		public void onComplete(AsyncEvent event) throws IOException {
+			ServletRequest request = event.getAsyncContext().getRequest();
+			Timer timer = (Timer) request.getAttribute(TIMER);
+			Long start = (Long) request.getAttribute(START_NANOS);
+
+			if (timer != null && start != null) {
+				timer.record(System.nanoTime() - start);
+			}
+		}
+
+		@Override
+		public void onTimeout(AsyncEvent event) throws IOException {
+		}
+
+		@Override
+		public void onError(AsyncEvent event) throws IOException {
+		}
+
+		@Override
+		public void onStartAsync(AsyncEvent event) throws IOException {
+		}
+	}
+}
@@ -0,0 +1,101 @@
+package com.patrick.corda.networkmap.core;
+
+import static com.patrick.corda.networkmap.core.SignedNodeInfoTestUtils.createSignedNodeInfo;
+import static com.patrick.corda.networkmap.core.SignedNodeInfoTestUtils.newKeyPair;
+import static net.corda.nodeapi.internal.crypto.X509Utilities.createCertificate;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.security.KeyPair;
+import java.security.cert.CertPath;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bouncycastle.asn1.x509.NameConstraints;
+import org.junit.Test;
+
+import kotlin.Pair;
+import net.corda.core.identity.CordaX500Name;
+import net.corda.nodeapi.internal.crypto.CertificateAndKeyPair;
+import net.corda.nodeapi.internal.crypto.CertificateType;
+import net.corda.nodeapi.internal.crypto.X509Utilities;
+
+/**
+ * 
+ * @author Patrick Pan
+ *
+ */
+public class CertificatePathValidatorTest {
+
+	private CertificatePathValidator certificatePathValidator = CertificatePathValidator.getInstance();
+
+	@Test
+	public void testValidateTwice() throws Exception {
+		CertPath certPath = createCertPath(new CordaX500Name("Validated Party", "London", "GB"));
+
+		certificatePathValidator.validate(certPath);
+		certificatePathValidator.validate(certPath);
+	}
+
+	@Test
+	public void testTrustIntermediateOfPathEndingWithRoot() throws Exception {
+		CertPath certPath = createCertPath(new CordaX500Name("Rooted Party", "London", "GB"));
+		X509Certificate root = NetworkMapCertificateManager.getInstance().getRootCertificateAndKeyPair()
+				.getCertificate();
+
+		/**
+		 * Paths of real nodes end with the root.
+		 */
+		@SuppressWarnings("unchecked")
+		List<X509Certificate> certificates = new ArrayList<>((List<X509Certificate>) certPath.getCertificates());
+		X509Certificate doorman = certificates.get(certificates.size() - 1);
+		certificates.add(root);
+		CertPath rootedCertPath = X509Utilities.INSTANCE.buildCertPath(certificates);
+
+		certificatePathValidator.validate(rootedCertPath);
+		assertTrue(certificatePathValidator.isTrusted(doorman));
+		assertFalse(certificatePathValidator.isTrusted(root));
+		certificatePathValidator.validate(rootedCertPath);
+	}
+
+	@Test
+	public void testNotTrustIntermediateValidatedAlone() throws Exception {
+		CertificateAndKeyPair root = NetworkMapCertificateManager.getInstance().getRootCertificateAndKeyPair();
+		X509Certificate intermediate = createCertificate(CertificateType.INTERMEDIATE_CA, root.getCertificate(),
+				root.getKeyPair(), new CordaX500Name("Lone Doorman", "London", "GB").getX500Principal(),
+				newKeyPair().getPublic(), validityWindow(), (NameConstraints) null);
+
+		certificatePathValidator.validate(X509Utilities.INSTANCE.buildCertPath(intermediate));
+		assertFalse(certificatePathValidator.isTrusted(intermediate));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testValidateForgedPathBelowTrustedIntermediate() throws Exception {
+		CertPath certPath = createCertPath(new CordaX500Name("Honest Party", "London", "GB"));
+		certificatePathValidator.validate(certPath);
+
+		/**
+		 * The node CA is self-issued but claims to chain to the trusted doorman.
+		 */
+		@SuppressWarnings("unchecked")
+		List<X509Certificate> certificates = (List<X509Certificate>) certPath.getCertificates();
+		CordaX500Name name = new CordaX500Name("Forged Party", "London", "GB");
+		KeyPair nodeCaKeyPair = newKeyPair();
+		X509Certificate nodeCa = X509Utilities.createSelfSignedCACertificate(name.getX500Principal(), nodeCaKeyPair,
+				validityWindow());
+		X509Certificate identity = createCertificate(CertificateType.LEGAL_IDENTITY, nodeCa, nodeCaKeyPair,
+				name.getX500Principal(), newKeyPair().getPublic(), validityWindow(), (NameConstraints) null);
+
+		certificatePathValidator.validate(X509Utilities.INSTANCE.buildCertPath(identity, nodeCa, certificates.get(2)));
+	}
+
+	private CertPath createCertPath(CordaX500Name name) throws Exception {
+		return createSignedNodeInfo(name).verified().getLegalIdentitiesAndCerts().get(0).getCertPath();
+	}
+
+	private Pair<Duration, Duration> validityWindow() {
+		return new Pair<>(Duration.ofMillis(0), Duration.ofDays(3650));
+	}
+}
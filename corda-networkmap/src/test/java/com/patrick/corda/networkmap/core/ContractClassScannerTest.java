@@ -0,0 +1,161 @@
+package com.patrick.corda.networkmap.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import kotlin.Unit;
+import net.corda.core.contracts.Contract;
+
+/**
+ * Compiles small CorDapps at test time, so every case is built from source next
+ * to its assertions.
+ * 
+ * @author Patrick Pan
+ *
+ */
+public class ContractClassScannerTest {
+
+	private static final String VERIFY = "public void verify(net.corda.core.transactions.LedgerTransaction tx) {}";
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private ContractClassScanner scanner = new ContractClassScanner(Contract.class.getClassLoader());
+
+	@Test
+	public void testAbstractContractsAndInterfacesAreExcluded() throws Exception {
+		File jar = createJar("abstract.jar", Collections.emptyList(),
+				"package test; public abstract class AbstractContract implements net.corda.core.contracts.Contract {}",
+				"package test; public interface ContractInterface extends net.corda.core.contracts.Contract {}",
+				"package test; public class ConcreteContract implements net.corda.core.contracts.Contract { " + VERIFY
+						+ " }");
+
+		assertEquals(Collections.singletonList("test.ConcreteContract"), scanner.scan(jar));
+	}
+
+	@Test
+	public void testIndirectHierarchyInSameJar() throws Exception {
+		File jar = createJar("indirect.jar", Collections.emptyList(),
+				"package test; public abstract class BaseContract implements net.corda.core.contracts.Contract {}",
+				"package test; public abstract class MiddleContract extends BaseContract {}",
+				"package test; public class LeafContract extends MiddleContract { " + VERIFY + " }",
+				"package test; public interface SubContract extends net.corda.core.contracts.Contract {}",
+				"package test; public class InterfaceContract implements SubContract { " + VERIFY + " }",
+				"package test; public class NotAContract {}");
+
+		List<String> contracts = scanner.scan(jar);
+		assertEquals(2, contracts.size());
+		assertTrue(contracts.containsAll(Arrays.asList("test.LeafContract", "test.InterfaceContract")));
+	}
+
+	@Test
+	public void testSupertypeOutsideJar() throws Exception {
+		File jar = createJar("outside.jar", Collections.emptyList(),
+				"package test; public class Upgraded implements net.corda.core.contracts.UpgradedContract"
+						+ "<net.corda.core.contracts.ContractState, net.corda.core.contracts.ContractState> { "
+						+ "public String getLegacyContract() { return \"test.Legacy\"; } "
+						+ "public net.corda.core.contracts.ContractState upgrade("
+						+ "net.corda.core.contracts.ContractState state) { return state; } " + VERIFY + " }");
+
+		ContractClassScanner.ScanResult scanResult = scanner.newSession(Collections.singletonList(jar)).scan(jar);
+		assertEquals(Collections.singletonList("test.Upgraded"), scanResult.getContracts());
+		assertTrue(scanResult.isSelfContained());
+	}
+
+	@Test
+	public void testSupertypeInAnotherJar() throws Exception {
+		File baseJar = createJar("base.jar", Collections.emptyList(),
+				"package base; public abstract class SharedContract implements net.corda.core.contracts.Contract {}");
+		File jar = createJar("derived.jar", Collections.singletonList(baseJar),
+				"package derived; public class DerivedContract extends base.SharedContract { " + VERIFY + " }");
+
+		/**
+		 * On its own the base class cannot be resolved.
+		 */
+		assertTrue(scanner.scan(jar).isEmpty());
+
+		ContractClassScanner.ScanResult scanResult = scanner.newSession(Arrays.asList(baseJar, jar)).scan(jar);
+		assertEquals(Collections.singletonList("derived.DerivedContract"), scanResult.getContracts());
+		assertFalse(scanResult.isSelfContained());
+	}
+
+	@Test
+	public void testConstantPoolWithLongAndDouble() throws Exception {
+		File jar = createJar("constants.jar", Collections.emptyList(),
+				"package test; public class ConstantContract implements net.corda.core.contracts.Contract { "
+						+ "public static final long LIMIT = 123456789012345L; "
+						+ "public static final double RATE = 0.125D; "
+						+ "private long limit = LIMIT + System.nanoTime(); "
+						+ "private double rate = RATE * System.nanoTime(); " + VERIFY + " }");
+
+		assertEquals(Collections.singletonList("test.ConstantContract"), scanner.scan(jar));
+	}
+
+	/**
+	 * @param name      the file name of the jar
+	 * @param classpath jars the sources depend on
+	 * @param sources   one class per source
+	 * @return
+	 * @throws Exception
+	 */
+	private File createJar(String name, List<File> classpath, String... sources) throws Exception {
+		Path sourceDirectory = temporaryFolder.newFolder().toPath();
+		Path classDirectory = temporaryFolder.newFolder().toPath();
+		List<String> arguments = new ArrayList<>(Arrays.asList("-nowarn", "-d", classDirectory.toString(), "-cp",
+				Stream.concat(Stream.of(codeSource(Contract.class), codeSource(Unit.class)),
+						classpath.stream().map(File::getAbsolutePath)).collect(Collectors.joining(File.pathSeparator))));
+
+		for (String source : sources) {
+			String className = source.replaceAll("(?s).*?(class|interface) (\\w+).*", "$2");
+			Path file = sourceDirectory.resolve(className + ".java");
+			Files.write(file, source.getBytes(StandardCharsets.UTF_8));
+			arguments.add(file.toString());
+		}
+
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		assertEquals(0, compiler.run(null, null, null, arguments.toArray(new String[0])));
+
+		File jar = new File(temporaryFolder.getRoot(), name);
+		try (JarOutputStream jarOutputStream = new JarOutputStream(new FileOutputStream(jar));
+				Stream<Path> classFiles = Files.walk(classDirectory)) {
+			for (Path classFile : classFiles.filter(Files::isRegularFile).collect(Collectors.toList())) {
+				jarOutputStream.putNextEntry(new JarEntry(classDirectory.relativize(classFile).toString()));
+				jarOutputStream.write(Files.readAllBytes(classFile));
+				jarOutputStream.closeEntry();
+			}
+		}
+
+		return jar;
+	}
+
+	private static String codeSource(Class<?> clazz) {
+		try {
+			return Paths.get(clazz.getProtectionDomain().getCodeSource().getLocation().toURI()).toString();
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
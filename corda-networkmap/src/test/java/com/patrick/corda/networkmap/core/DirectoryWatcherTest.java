@@ -0,0 +1,38 @@
+package com.patrick.corda.networkmap.core;
+
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * 
+ * @author Patrick Pan
+ *
+ */
+public class DirectoryWatcherTest {
+
+	@Test
+	public void testListenerIsCalledAfterChange() throws IOException, InterruptedException {
+		File directory = Files.createTempDirectory("directory-watcher").toFile();
+		CountDownLatch changed = new CountDownLatch(1);
+
+		DirectoryWatcher directoryWatcher = DirectoryWatcher.watch(directory, changed::countDown);
+
+		try {
+			File file = new File(directory, "contracts.jar");
+			Files.write(file.toPath(), new byte[] { 1, 2, 3 });
+
+			assertTrue(changed.await(30, TimeUnit.SECONDS));
+			Files.delete(file.toPath());
+		} finally {
+			directoryWatcher.close();
+			Files.delete(directory.toPath());
+		}
+	}
+}
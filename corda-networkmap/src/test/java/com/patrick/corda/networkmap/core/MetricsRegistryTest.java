@@ -0,0 +1,85 @@
+package com.patrick.corda.networkmap.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+/**
+ * 
+ * @author Patrick Pan
+ *
+ */
+public class MetricsRegistryTest {
+
+	@Test
+	public void testTimerPercentiles() {
+		Timer timer = new Timer();
+
+		for (int i = 0; i < 99; i++) {
+			timer.record(TimeUnit.MICROSECONDS.toNanos(3));
+		}
+
+		timer.record(TimeUnit.MILLISECONDS.toNanos(10));
+
+		assertEquals(100, timer.getCount());
+		assertEquals(0.004, timer.getP50Millis(), 1e-9);
+		assertEquals(0.004, timer.getP99Millis(), 1e-9);
+		assertEquals(10, timer.getP999Millis(), 1e-9);
+		assertEquals(10, timer.getMaxMillis(), 1e-9);
+		assertEquals(0.10297, timer.getMeanMillis(), 1e-9);
+	}
+
+	@Test
+	public void testTimerIsRegisteredOnce() throws Exception {
+		MetricsRegistry metricsRegistry = MetricsRegistry.getInstance();
+		Timer timer = metricsRegistry.timer("networkmap_test_seconds", "Test.", "endpoint", "Test");
+
+		assertSame(timer, metricsRegistry.timer("networkmap_test_seconds", "Test.", "endpoint", "Test"));
+		assertTrue(ManagementFactory.getPlatformMBeanServer().isRegistered(new ObjectName(
+				"com.patrick.corda.networkmap:type=Timer,name=networkmap_test_seconds,endpoint=Test")));
+	}
+
+	@Test
+	public void testWriteTo() {
+		MetricsRegistry metricsRegistry = MetricsRegistry.getInstance();
+		metricsRegistry.timer("networkmap_write_seconds", "Write.").record(TimeUnit.MILLISECONDS.toNanos(1));
+		metricsRegistry.gauge("networkmap_write_gauge", "Gauge.", () -> 42);
+
+		StringWriter stringWriter = new StringWriter();
+		metricsRegistry.writeTo(new PrintWriter(stringWriter));
+		String text = stringWriter.toString();
+
+		assertTrue(text.contains("# TYPE networkmap_write_seconds histogram"));
+		assertTrue(text.contains("networkmap_write_seconds_bucket{le=\"0.000512\"} 0"));
+		assertTrue(text.contains("networkmap_write_seconds_bucket{le=\"0.001024\"} 1"));
+		assertTrue(text.contains("networkmap_write_seconds_bucket{le=\"+Inf\"} 1"));
+		assertTrue(text.contains("networkmap_write_seconds_count 1"));
+		assertTrue(text.contains("# TYPE networkmap_write_gauge gauge"));
+		assertTrue(text.contains("networkmap_write_gauge 42"));
+	}
+
+	@Test
+	public void testWriteToCountsDurationOnBucketBound() {
+		MetricsRegistry metricsRegistry = MetricsRegistry.getInstance();
+		Timer timer = metricsRegistry.timer("networkmap_bound_seconds", "Bound.");
+		timer.record(TimeUnit.MICROSECONDS.toNanos(1024));
+		timer.record(TimeUnit.MICROSECONDS.toNanos(1024) + 1);
+
+		StringWriter stringWriter = new StringWriter();
+		metricsRegistry.writeTo(new PrintWriter(stringWriter));
+		String text = stringWriter.toString();
+
+		assertTrue(text.contains("networkmap_bound_seconds_bucket{le=\"0.000512\"} 0"));
+		assertTrue(text.contains("networkmap_bound_seconds_bucket{le=\"0.001024\"} 1"));
+		assertTrue(text.contains("networkmap_bound_seconds_bucket{le=\"0.002048\"} 2"));
+	}
+}
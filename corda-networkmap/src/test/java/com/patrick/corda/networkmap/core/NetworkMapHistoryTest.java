@@ -0,0 +1,72 @@
+package com.patrick.corda.networkmap.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import net.corda.core.crypto.SecureHash;
+
+/**
+ * 
+ * @author Patrick Pan
+ *
+ */
+public class NetworkMapHistoryTest {
+
+	private final SecureHash a = SecureHash.randomSHA256();
+	private final SecureHash b = SecureHash.randomSHA256();
+	private final SecureHash c = SecureHash.randomSHA256();
+
+	@Test
+	public void testGetDeltaSinceMergesVersions() {
+		NetworkMapHistory history = new NetworkMapHistory(10);
+		history.record(1, Arrays.asList(a, b));
+		history.record(2, Arrays.asList(a, c));
+		history.record(3, Arrays.asList(b, c));
+
+		NetworkMapDelta delta = history.getDeltaSince(1);
+		assertEquals(3, delta.getToVersion());
+		assertEquals(Collections.singletonList(c), delta.getAddedHashes());
+		assertEquals(Collections.singletonList(a), delta.getRemovedHashes());
+
+		delta = history.getDeltaSince(2);
+		assertEquals(Collections.singletonList(b), delta.getAddedHashes());
+		assertEquals(Collections.singletonList(a), delta.getRemovedHashes());
+
+		delta = history.getDeltaSince(3);
+		assertTrue(delta.getAddedHashes().isEmpty());
+		assertTrue(delta.getRemovedHashes().isEmpty());
+	}
+
+	@Test
+	public void testGetDeltaSinceUnknownVersion() {
+		NetworkMapHistory history = new NetworkMapHistory(1);
+		history.record(1, Arrays.asList(a));
+		history.record(2, Arrays.asList(a, b));
+		history.record(3, Arrays.asList(b));
+
+		assertNull(history.getDeltaSince(1));
+		assertNull(history.getDeltaSince(4));
+		assertEquals(Collections.singletonList(a), history.getDeltaSince(2).getRemovedHashes());
+	}
+
+	@Test
+	public void testGetDeltaSinceStopsAtUntilVersion() {
+		NetworkMapHistory history = new NetworkMapHistory(10);
+		history.record(1, Arrays.asList(a, b));
+		history.record(2, Arrays.asList(a, c));
+		history.record(3, Arrays.asList(b, c));
+
+		NetworkMapDelta delta = history.getDeltaSince(1, 2);
+		assertEquals(2, delta.getToVersion());
+		assertEquals(Collections.singletonList(c), delta.getAddedHashes());
+		assertEquals(Collections.singletonList(b), delta.getRemovedHashes());
+
+		assertNull(history.getDeltaSince(3, 2));
+	}
+}
@@ -0,0 +1,76 @@
+package com.patrick.corda.networkmap.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import net.corda.core.identity.CordaX500Name;
+import net.corda.nodeapi.internal.SignedNodeInfo;
+
+/**
+ * 
+ * @author Patrick Pan
+ *
+ */
+public class NetworkMapManagerTest {
+
+	/**
+	 * Initialises the certificates and the serialization environment.
+	 */
+	static {
+		SignedNodeInfoTestUtils.newKeyPair();
+	}
+
+	private NetworkMapManager networkMapManager = NetworkMapManager.getInstance();
+
+	@Test
+	public void testRefreshNotifiesListeners() {
+		AtomicLong publishedVersion = new AtomicLong();
+		AtomicReference<SignedArtifact> publishedArtifact = new AtomicReference<>();
+		NetworkMapListener listener = (version, artifact) -> {
+			publishedVersion.set(version);
+			publishedArtifact.set(artifact);
+		};
+
+		long previousVersion = networkMapManager.getVersion();
+		networkMapManager.addListener(listener);
+		try {
+			networkMapManager.refreshNetworkMap();
+		} finally {
+			networkMapManager.removeListener(listener);
+		}
+
+		assertEquals(previousVersion + 1, publishedVersion.get());
+		assertEquals(publishedVersion.get(), networkMapManager.getVersion());
+		assertSame(networkMapManager.getSignedNetworkMapArtifact(), publishedArtifact.get());
+	}
+
+	@Test
+	public void testRefreshPublishesSnapshot() throws Exception {
+		SignedNodeInfo signedNodeInfo = SignedNodeInfoTestUtils
+				.createSignedNodeInfo(new CordaX500Name("Snapshot Party", "London", "GB"));
+		NetworkMapSnapshot previous = networkMapManager.getSnapshot();
+
+		NodeInfoHashManager.getInstance().addNode(signedNodeInfo);
+		networkMapManager.refreshNetworkMap();
+		NetworkMapSnapshot snapshot = networkMapManager.getSnapshot();
+
+		assertTrue(snapshot.getVersion() > previous.getVersion());
+		assertTrue(snapshot.getNodeInfoHashes().contains(signedNodeInfo.getRaw().getHash()));
+		assertArrayEquals(snapshot.getSignedArtifact().getByteArray(), snapshot.getSignedNetworkMapByteArray());
+		assertEquals(snapshot.getSignedArtifact().getETag(), snapshot.getETag());
+		assertFalse(snapshot.getTimestamp().isBefore(previous.getTimestamp()));
+
+		/**
+		 * A snapshot never changes once published.
+		 */
+		assertFalse(previous.getNodeInfoHashes().contains(signedNodeInfo.getRaw().getHash()));
+	}
+}
@@ -0,0 +1,37 @@
+package com.patrick.corda.networkmap.core;
+
+import static com.patrick.corda.networkmap.core.SignedNodeInfoTestUtils.createSignedNodeInfo;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import net.corda.core.identity.CordaX500Name;
+import net.corda.core.internal.SignedDataWithCert;
+import net.corda.nodeapi.internal.SignedNodeInfo;
+import net.corda.nodeapi.internal.network.NetworkMap;
+
+/**
+ * 
+ * @author Patrick Pan
+ *
+ */
+public class NetworkMapRefreshSchedulerTest {
+
+	@Test
+	public void testFlushPublishesPendingChanges() throws Exception {
+		SignedNodeInfo signedNodeInfo = createSignedNodeInfo(new CordaX500Name("Scheduled Party", "London", "GB"));
+
+		NodeInfoHashManager.getInstance().addNode(signedNodeInfo);
+		NetworkMapRefreshScheduler.getInstance().flush();
+
+		assertTrue(readNetworkMap().getNodeInfoHashes().contains(signedNodeInfo.getRaw().getHash()));
+	}
+
+	@SuppressWarnings("unchecked")
+	private NetworkMap readNetworkMap() {
+		byte[] signedNetworkMapByteArray = NetworkMapManager.getInstance().getSignedNetworkMapByteArray();
+		SignedDataWithCert<NetworkMap> signedNetworkMap = SerializationEnvironmentManager.getInstance()
+				.deserializeObjectOnContext(SignedDataWithCert.class, signedNetworkMapByteArray);
+		return signedNetworkMap.verified();
+	}
+}
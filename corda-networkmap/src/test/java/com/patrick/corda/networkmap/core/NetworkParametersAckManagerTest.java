@@ -0,0 +1,91 @@
+package com.patrick.corda.networkmap.core;
+
+import static com.patrick.corda.networkmap.core.SignedNodeInfoTestUtils.createSignedNodeInfo;
+import static com.patrick.corda.networkmap.core.SignedNodeInfoTestUtils.newKeyPair;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.security.KeyPair;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import net.corda.core.crypto.Crypto;
+import net.corda.core.crypto.DigitalSignature;
+import net.corda.core.crypto.SecureHash;
+import net.corda.core.crypto.SignedData;
+import net.corda.core.identity.CordaX500Name;
+import net.corda.core.serialization.SerializedBytes;
+
+/**
+ * 
+ * @author Patrick Pan
+ *
+ */
+public class NetworkParametersAckManagerTest {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private NetworkParametersAckManager ackManager = NetworkParametersAckManager.getInstance();
+
+	@Test
+	public void testAcknowledge() throws Exception {
+		CordaX500Name name = new CordaX500Name("Accepting Party", "London", "GB");
+		KeyPair keyPair = newKeyPair();
+		NodeInfoHashManager.getInstance().addNode(createSignedNodeInfo(name, keyPair, 1L));
+
+		SecureHash hash = NetworkParametersManager.getInstance().getSignedNetworkParametersHash();
+		int acceptanceCount = ackManager.getAcceptanceCount(hash);
+		assertTrue(ackManager.getNodesNotAccepted(hash).contains(name));
+
+		assertEquals(name, ackManager.acknowledge(sign(hash, keyPair)));
+		assertEquals(name, ackManager.acknowledge(sign(hash, keyPair)));
+
+		assertEquals(acceptanceCount + 1, ackManager.getAcceptanceCount(hash));
+		assertEquals(Integer.valueOf(acceptanceCount + 1), ackManager.getAcceptanceCounts().get(hash));
+		assertFalse(ackManager.getNodesNotAccepted(hash).contains(name));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testAcknowledgeByUnregisteredNode() throws Exception {
+		SecureHash hash = NetworkParametersManager.getInstance().getSignedNetworkParametersHash();
+		ackManager.acknowledge(sign(hash, newKeyPair()));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testAcknowledgeUnknownParameters() throws Exception {
+		CordaX500Name name = new CordaX500Name("Confused Party", "London", "GB");
+		KeyPair keyPair = newKeyPair();
+		NodeInfoHashManager.getInstance().addNode(createSignedNodeInfo(name, keyPair, 1L));
+
+		ackManager.acknowledge(sign(SecureHash.randomSHA256(), keyPair));
+	}
+
+	@Test
+	public void testAcceptancesSurviveRestart() throws Exception {
+		NetworkParametersStore store = new NetworkParametersStore(temporaryFolder.newFolder());
+		SecureHash hash = SecureHash.randomSHA256();
+		CordaX500Name nameA = new CordaX500Name("Party A", "London", "GB");
+		CordaX500Name nameB = new CordaX500Name("Party B", "New York", "US");
+
+		NetworkParametersAckManager ackManager = new NetworkParametersAckManager(store);
+		assertTrue(ackManager.acknowledge(hash, nameA));
+		assertTrue(ackManager.acknowledge(hash, nameB));
+		assertFalse(ackManager.acknowledge(hash, nameA));
+
+		ackManager = new NetworkParametersAckManager(store);
+		assertEquals(2, ackManager.getAcceptanceCount(hash));
+		assertFalse(ackManager.acknowledge(hash, nameB));
+		assertEquals(2, ackManager.getAcceptanceCount(hash));
+	}
+
+	private SignedData<SecureHash> sign(SecureHash hash, KeyPair keyPair) throws Exception {
+		SerializedBytes<SecureHash> serializedHash = SerializationEnvironmentManager.getInstance()
+				.serializeObjectOnContext(hash);
+		byte[] signature = Crypto.doSign(keyPair.getPrivate(), serializedHash.getBytes());
+		return new SignedData<>(serializedHash, new DigitalSignature.WithKey(keyPair.getPublic(), signature));
+	}
+}
@@ -0,0 +1,147 @@
+package com.patrick.corda.networkmap.core;
+
+import static com.patrick.corda.networkmap.Utils.signData;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import net.corda.core.crypto.SecureHash;
+import net.corda.core.internal.SignedDataWithCert;
+import net.corda.core.node.NetworkParameters;
+import net.corda.nodeapi.internal.network.ParametersUpdate;
+
+/**
+ * 
+ * @author Patrick Pan
+ *
+ */
+public class NetworkParametersManagerTest {
+
+	/**
+	 * Initialises the certificates and the serialization environment.
+	 */
+	static {
+		SignedNodeInfoTestUtils.newKeyPair();
+	}
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private NetworkParametersManager networkParametersManager = NetworkParametersManager.getInstance();
+
+	@Test
+	public void testGetSignedNetworkParametersArtifactByHash() {
+		SecureHash hash = networkParametersManager.getSignedNetworkParametersHash();
+
+		assertSame(networkParametersManager.getSignedNetworkParametersArtifact(),
+				networkParametersManager.getSignedNetworkParametersArtifact(hash));
+		assertNull(networkParametersManager.getSignedNetworkParametersArtifact(SecureHash.randomSHA256()));
+	}
+
+	@Test
+	public void testStageUnchangedNetworkParameters() {
+		SecureHash hash = networkParametersManager.getSignedNetworkParametersHash();
+
+		assertFalse(networkParametersManager.stageNetworkParameters("Nothing has changed."));
+		assertNull(networkParametersManager.getParametersUpdate());
+		assertSame(hash, networkParametersManager.getSignedNetworkParametersHash());
+	}
+
+	@Test
+	public void testStagedVersionSurvivesRestart() throws Exception {
+		NetworkParametersStore store = newStoreWithOutdatedCurrentVersion();
+		ParametersUpdate parametersUpdate = stage(store);
+
+		NetworkParametersManager manager = new NetworkParametersManager(store);
+
+		try {
+			assertEquals(parametersUpdate.getNewParametersHash(), manager.getStagedNetworkParametersHash());
+			assertEquals(parametersUpdate.getUpdateDeadline(), manager.getParametersUpdate().getUpdateDeadline());
+			assertEquals(parametersUpdate.getDescription(), manager.getParametersUpdate().getDescription());
+			assertEquals(2, store.load().size());
+		} finally {
+			manager.destroy();
+		}
+	}
+
+	@Test
+	public void testStagedVersionReusedWithoutStoredUpdate() throws Exception {
+		NetworkParametersStore store = newStoreWithOutdatedCurrentVersion();
+		ParametersUpdate parametersUpdate = stage(store);
+		store.deleteParametersUpdate();
+
+		NetworkParametersManager manager = new NetworkParametersManager(store);
+
+		try {
+			assertEquals(parametersUpdate.getNewParametersHash(), manager.getStagedNetworkParametersHash());
+			assertEquals(2, store.load().size());
+		} finally {
+			manager.destroy();
+		}
+	}
+
+	@Test
+	public void testStagedVersionActivatedAfterDeadline() throws Exception {
+		NetworkParametersStore store = newStoreWithOutdatedCurrentVersion();
+		SecureHash stagedHash = stage(store).getNewParametersHash();
+		store.saveParametersUpdate(new ParametersUpdate(stagedHash, "Overdue", Instant.now().minusSeconds(1)));
+
+		NetworkParametersManager manager = new NetworkParametersManager(store);
+
+		try {
+			long deadline = System.currentTimeMillis() + 5000;
+
+			while (!stagedHash.equals(manager.getSignedNetworkParametersHash())
+					&& System.currentTimeMillis() < deadline) {
+				Thread.sleep(10);
+			}
+
+			assertEquals(stagedHash, manager.getSignedNetworkParametersHash());
+			assertNull(manager.getParametersUpdate());
+			assertNull(store.loadParametersUpdate());
+			assertEquals(stagedHash.toString(), store.loadCurrentHash());
+		} finally {
+			manager.destroy();
+		}
+	}
+
+	/**
+	 * Starts a network map on the store, which stages the network parameters built
+	 * from the notaries and the whitelist as they differ from the current ones.
+	 */
+	private ParametersUpdate stage(NetworkParametersStore store) {
+		NetworkParametersManager manager = new NetworkParametersManager(store);
+
+		try {
+			ParametersUpdate parametersUpdate = manager.getParametersUpdate();
+			assertNotNull(parametersUpdate);
+			return parametersUpdate;
+		} finally {
+			manager.destroy();
+		}
+	}
+
+	private NetworkParametersStore newStoreWithOutdatedCurrentVersion() throws Exception {
+		NetworkParametersStore store = new NetworkParametersStore(temporaryFolder.newFolder());
+		NetworkParameters networkParameters = new NetworkParameters(1, Collections.emptyList(),
+				networkParametersManager.getMaxMessageSize(), Integer.MAX_VALUE, Instant.now(), 1,
+				Collections.emptyMap(), Duration.ofDays(30));
+		SignedDataWithCert<NetworkParameters> signedNetworkParameters = signData(networkParameters);
+		String hash = signedNetworkParameters.getRaw().getHash().toString();
+
+		store.save(hash, SerializationEnvironmentManager.getInstance().serializeObjectOnContext(signedNetworkParameters)
+				.getBytes());
+		store.saveCurrentHash(hash);
+		return store;
+	}
+}
@@ -0,0 +1,98 @@
+package com.patrick.corda.networkmap.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import net.corda.core.crypto.SecureHash;
+import net.corda.nodeapi.internal.network.ParametersUpdate;
+
+/**
+ * 
+ * @author Patrick Pan
+ *
+ */
+public class NetworkParametersStoreTest {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Test
+	public void testLoadSavedVersions() throws Exception {
+		File directory = temporaryFolder.newFolder();
+		String hashA = SecureHash.randomSHA256().toString();
+		String hashB = SecureHash.randomSHA256().toString();
+
+		NetworkParametersStore store = new NetworkParametersStore(directory);
+		assertTrue(store.load().isEmpty());
+		assertNull(store.loadCurrentHash());
+
+		store.save(hashA, new byte[] { 1, 2, 3 });
+		store.save(hashB, new byte[] { 4, 5 });
+		store.saveCurrentHash(hashB);
+
+		/**
+		 * A version never changes, so saving it again keeps the stored bytes.
+		 */
+		store.save(hashA, new byte[] { 6 });
+
+		store = new NetworkParametersStore(directory);
+		Map<String, byte[]> versions = store.load();
+		assertEquals(2, versions.size());
+		assertArrayEquals(new byte[] { 1, 2, 3 }, versions.get(hashA));
+		assertArrayEquals(new byte[] { 4, 5 }, versions.get(hashB));
+		assertEquals(hashB, store.loadCurrentHash());
+	}
+
+	@Test
+	public void testLoadSavedParametersUpdate() throws Exception {
+		File directory = temporaryFolder.newFolder();
+		SecureHash hash = SecureHash.randomSHA256();
+		Instant deadline = Instant.ofEpochMilli(System.currentTimeMillis() + 60000);
+
+		NetworkParametersStore store = new NetworkParametersStore(directory);
+		assertNull(store.loadParametersUpdate());
+
+		store.saveParametersUpdate(new ParametersUpdate(hash, "The notaries have changed.\nRestart the nodes.", deadline));
+
+		store = new NetworkParametersStore(directory);
+		ParametersUpdate parametersUpdate = store.loadParametersUpdate();
+		assertEquals(hash, parametersUpdate.getNewParametersHash());
+		assertEquals("The notaries have changed.\nRestart the nodes.", parametersUpdate.getDescription());
+		assertEquals(deadline, parametersUpdate.getUpdateDeadline());
+
+		store.deleteParametersUpdate();
+		assertNull(store.loadParametersUpdate());
+	}
+
+	@Test
+	public void testLoadSavedAcceptances() throws Exception {
+		File directory = temporaryFolder.newFolder();
+		String hash = SecureHash.randomSHA256().toString();
+
+		NetworkParametersStore store = new NetworkParametersStore(directory);
+		store.save(hash, new byte[] { 1 });
+		assertTrue(store.loadAcceptances().isEmpty());
+
+		store.saveAcceptance(hash, "O=Party A, L=London, C=GB");
+		store.saveAcceptance(hash, "O=Party B, L=New York, C=US");
+
+		store = new NetworkParametersStore(directory);
+		Map<String, List<String>> acceptances = store.loadAcceptances();
+		assertEquals(1, acceptances.size());
+		assertEquals(Arrays.asList("O=Party A, L=London, C=GB", "O=Party B, L=New York, C=US"),
+				acceptances.get(hash));
+		assertEquals(1, store.load().size());
+	}
+}
@@ -0,0 +1,129 @@
+package com.patrick.corda.networkmap.core;
+
+import static com.patrick.corda.networkmap.core.SignedNodeInfoTestUtils.createNotaryClusterMemberSignedNodeInfo;
+import static com.patrick.corda.networkmap.core.SignedNodeInfoTestUtils.createSignedNodeInfo;
+import static com.patrick.corda.networkmap.core.SignedNodeInfoTestUtils.newKeyPair;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.security.KeyPair;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import net.corda.core.crypto.SecureHash;
+import net.corda.core.identity.CordaX500Name;
+import net.corda.nodeapi.internal.SignedNodeInfo;
+
+/**
+ * 
+ * @author Patrick Pan
+ *
+ */
+public class NodeInfoHashManagerTest {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private NodeInfoHashManager nodeInfoHashManager = NodeInfoHashManager.getInstance();
+
+	@Test(expected = DuplicateCordaX500NameException.class)
+	public void testAddNodeWithDuplicateName() throws Exception {
+		CordaX500Name name = new CordaX500Name("Duplicate Party", "London", "GB");
+
+		nodeInfoHashManager.addNode(createSignedNodeInfo(name));
+		nodeInfoHashManager.addNode(createSignedNodeInfo(name));
+	}
+
+	@Test
+	public void testAddNodeReplacesPreviousNodeInfo() throws Exception {
+		CordaX500Name name = new CordaX500Name("Republishing Party", "London", "GB");
+		KeyPair keyPair = newKeyPair();
+
+		SignedNodeInfo previous = createSignedNodeInfo(name, keyPair, 1L);
+		SignedNodeInfo current = createSignedNodeInfo(name, keyPair, 2L);
+		SecureHash previousHash = previous.getRaw().getHash();
+		SecureHash currentHash = current.getRaw().getHash();
+
+		nodeInfoHashManager.addNode(previous);
+		nodeInfoHashManager.addNode(current);
+
+		List<SecureHash> hashList = nodeInfoHashManager.getSignedNodeInfoHashList();
+		assertFalse(hashList.contains(previousHash));
+		assertTrue(hashList.contains(currentHash));
+		assertNull(nodeInfoHashManager.getSignedNodeInfo(previousHash.toString()));
+		assertNotNull(nodeInfoHashManager.getSignedNodeInfo(currentHash.toString()));
+	}
+
+	@Test(expected = IOException.class)
+	public void testFailedAppendKeepsPreviousNodeInfo() throws Exception {
+		CordaX500Name name = new CordaX500Name("Unlucky Party", "London", "GB");
+		KeyPair keyPair = newKeyPair();
+		NodeInfoStore store = new NodeInfoStore(temporaryFolder.newFolder());
+		NodeInfoHashManager nodeInfoHashManager = new NodeInfoHashManager(store);
+
+		SignedNodeInfo previous = createSignedNodeInfo(name, keyPair, 1L);
+		nodeInfoHashManager.addNode(previous);
+
+		/**
+		 * Appending to a closed store fails like a full disk does.
+		 */
+		store.close();
+
+		try {
+			nodeInfoHashManager.addNode(createSignedNodeInfo(name, keyPair, 2L));
+		} finally {
+			assertEquals(1, nodeInfoHashManager.getNodeCount());
+			assertNotNull(nodeInfoHashManager.getSignedNodeInfo(previous.getRaw().getHash().toString()));
+			assertEquals(name, nodeInfoHashManager.getLegalName(keyPair.getPublic()));
+		}
+	}
+
+	@Test
+	public void testRemoveNodeReleasesName() throws Exception {
+		CordaX500Name name = new CordaX500Name("Leaving Party", "London", "GB");
+
+		SignedNodeInfo signedNodeInfo = createSignedNodeInfo(name);
+		nodeInfoHashManager.addNode(signedNodeInfo);
+		nodeInfoHashManager.removeNode(signedNodeInfo.getRaw().getHash().toString());
+
+		/**
+		 * The name is free again, so a different key may now register it.
+		 */
+		SignedNodeInfo newcomer = createSignedNodeInfo(name);
+		nodeInfoHashManager.addNode(newcomer);
+		assertTrue(nodeInfoHashManager.getSignedNodeInfoHashList().contains(newcomer.getRaw().getHash()));
+	}
+
+	@Test
+	public void testNotaryClusterMembersShareServiceIdentity() throws Exception {
+		CordaX500Name serviceName = new CordaX500Name("Cluster Notary Service", "London", "GB");
+		KeyPair serviceKeyPair = newKeyPair();
+
+		SignedNodeInfo first = createNotaryClusterMemberSignedNodeInfo(
+				new CordaX500Name("Cluster Notary A", "London", "GB"), serviceName, serviceKeyPair);
+		SignedNodeInfo second = createNotaryClusterMemberSignedNodeInfo(
+				new CordaX500Name("Cluster Notary B", "London", "GB"), serviceName, serviceKeyPair);
+
+		nodeInfoHashManager.addNode(first);
+		nodeInfoHashManager.addNode(second);
+
+		List<SecureHash> hashList = nodeInfoHashManager.getSignedNodeInfoHashList();
+		assertTrue(hashList.contains(first.getRaw().getHash()));
+		assertTrue(hashList.contains(second.getRaw().getHash()));
+
+		/**
+		 * The service identity stays registered until its last member leaves.
+		 */
+		nodeInfoHashManager.removeNode(first.getRaw().getHash().toString());
+		assertEquals(serviceName, nodeInfoHashManager.getLegalName(serviceKeyPair.getPublic()));
+		nodeInfoHashManager.removeNode(second.getRaw().getHash().toString());
+		assertNull(nodeInfoHashManager.getLegalName(serviceKeyPair.getPublic()));
+	}
+}
@@ -0,0 +1,52 @@
+package com.patrick.corda.networkmap.core;
+
+import static com.patrick.corda.networkmap.core.SignedNodeInfoTestUtils.createSignedNodeInfo;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import net.corda.core.identity.CordaX500Name;
+import net.corda.nodeapi.internal.SignedNodeInfo;
+
+/**
+ * 
+ * @author Patrick Pan
+ *
+ */
+public class NodeInfoPublisherTest {
+
+	private NodeInfoPublisher nodeInfoPublisher = NodeInfoPublisher.getInstance();
+
+	@Test
+	public void testPublishRegistersNode() throws Exception {
+		SignedNodeInfo signedNodeInfo = createSignedNodeInfo(new CordaX500Name("Queued Party", "London", "GB"));
+
+		nodeInfoPublisher.publish(toByteArray(signedNodeInfo)).get(1, TimeUnit.MINUTES);
+
+		assertNotNull(NodeInfoHashManager.getInstance().getSignedNodeInfo(signedNodeInfo.getRaw().getHash().toString()));
+	}
+
+	@Test
+	public void testPublishReportsDuplicateName() throws Exception {
+		CordaX500Name name = new CordaX500Name("Queued Duplicate Party", "London", "GB");
+
+		nodeInfoPublisher.publish(toByteArray(createSignedNodeInfo(name))).get(1, TimeUnit.MINUTES);
+
+		try {
+			nodeInfoPublisher.publish(toByteArray(createSignedNodeInfo(name))).get(1, TimeUnit.MINUTES);
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof DuplicateCordaX500NameException);
+			return;
+		}
+
+		throw new AssertionError("The duplicate name should have been refused.");
+	}
+
+	private byte[] toByteArray(SignedNodeInfo signedNodeInfo) {
+		return SerializationEnvironmentManager.getInstance().serializeObjectOnContext(signedNodeInfo).getBytes();
+	}
+}
@@ -0,0 +1,181 @@
+package com.patrick.corda.networkmap.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import net.corda.core.crypto.SecureHash;
+
+/**
+ * 
+ * @author Patrick Pan
+ *
+ */
+public class NodeInfoStoreTest {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Test
+	public void testLoadReplaysAppendedRecords() throws Exception {
+		File directory = temporaryFolder.newFolder();
+		String hashA = hash("A");
+		String hashB = hash("B");
+
+		NodeInfoStore store = new NodeInfoStore(directory);
+		assertTrue(store.load().isEmpty());
+		store.append(hashA, new byte[] { 1, 2, 3 });
+		store.append(hashB, new byte[] { 4, 5 });
+		store.appendRemoval(hashA);
+		store.close();
+
+		Map<String, byte[]> entries = new NodeInfoStore(directory).load();
+		assertEquals(1, entries.size());
+		assertArrayEquals(new byte[] { 4, 5 }, entries.get(hashB));
+	}
+
+	@Test
+	public void testLoadDiscardsIncompleteRecord() throws Exception {
+		File directory = temporaryFolder.newFolder();
+		String hashA = hash("A");
+
+		NodeInfoStore store = new NodeInfoStore(directory);
+		store.load();
+		store.append(hashA, new byte[] { 1, 2, 3 });
+		store.append(hash("B"), new byte[] { 4, 5, 6 });
+		store.close();
+
+		/**
+		 * Simulate a crash in the middle of writing the second record.
+		 */
+		File log = new File(directory, "node-infos.log");
+		try (RandomAccessFile randomAccessFile = new RandomAccessFile(log, "rw")) {
+			randomAccessFile.setLength(randomAccessFile.length() - 2);
+		}
+
+		store = new NodeInfoStore(directory);
+		Map<String, byte[]> entries = store.load();
+		assertEquals(1, entries.size());
+		assertArrayEquals(new byte[] { 1, 2, 3 }, entries.get(hashA));
+
+		/**
+		 * New records are appended right after the last intact one.
+		 */
+		store.append(hash("C"), new byte[] { 7 });
+		store.close();
+		assertEquals(2, new NodeInfoStore(directory).load().size());
+	}
+
+	@Test
+	public void testLoadAfterCompaction() throws Exception {
+		File directory = temporaryFolder.newFolder();
+
+		NodeInfoStore store = new NodeInfoStore(directory);
+		store.load();
+		store.append(hash("A"), new byte[] { 1 });
+		store.append(hash("B"), new byte[] { 2 });
+		store.appendRemoval(hash("A"));
+
+		Map<String, byte[]> entries = new LinkedHashMap<>();
+		entries.put(hash("B"), new byte[] { 2 });
+		store.compact(entries);
+		store.append(hash("C"), new byte[] { 3 });
+		store.close();
+
+		assertTrue(new File(directory, "node-infos.snapshot").isFile());
+		assertFalse(new File(directory, "node-infos.log.1").exists());
+
+		Map<String, byte[]> loaded = new NodeInfoStore(directory).load();
+		assertEquals(2, loaded.size());
+		assertArrayEquals(new byte[] { 2 }, loaded.get(hash("B")));
+		assertArrayEquals(new byte[] { 3 }, loaded.get(hash("C")));
+	}
+
+	@Test
+	public void testCompactionRetriedAfterFailure() throws Exception {
+		File directory = temporaryFolder.newFolder();
+		File rotatedLog = new File(directory, "node-infos.log.1");
+
+		NodeInfoStore store = new NodeInfoStore(directory);
+		store.load();
+		store.append(hash("A"), new byte[] { 1 });
+		store.append(hash("B"), new byte[] { 2 });
+
+		/**
+		 * The snapshot cannot be written while a directory takes the place of its
+		 * temporary file.
+		 */
+		File blocker = new File(directory, "node-infos.snapshot.tmp");
+		assertTrue(blocker.mkdir());
+
+		Map<String, byte[]> entries = new LinkedHashMap<>();
+		entries.put(hash("A"), new byte[] { 1 });
+		entries.put(hash("B"), new byte[] { 2 });
+		store.compact(entries);
+		store.awaitCompaction();
+		assertTrue(rotatedLog.exists());
+
+		store.append(hash("C"), new byte[] { 3 });
+		store.appendRemoval(hash("A"));
+		assertTrue(blocker.delete());
+
+		entries.remove(hash("A"));
+		entries.put(hash("C"), new byte[] { 3 });
+		store.compact(entries);
+		store.awaitCompaction();
+		assertFalse(rotatedLog.exists());
+		assertTrue(new File(directory, "node-infos.snapshot").isFile());
+
+		store.append(hash("D"), new byte[] { 4 });
+		store.close();
+
+		Map<String, byte[]> loaded = new NodeInfoStore(directory).load();
+		assertEquals(3, loaded.size());
+		assertArrayEquals(new byte[] { 2 }, loaded.get(hash("B")));
+		assertArrayEquals(new byte[] { 3 }, loaded.get(hash("C")));
+		assertArrayEquals(new byte[] { 4 }, loaded.get(hash("D")));
+	}
+
+	@Test
+	public void testRotatedLogKeepsRecordsAfterFailedCompaction() throws Exception {
+		File directory = temporaryFolder.newFolder();
+
+		NodeInfoStore store = new NodeInfoStore(directory);
+		store.load();
+		store.append(hash("A"), new byte[] { 1 });
+		assertTrue(new File(directory, "node-infos.snapshot.tmp").mkdir());
+
+		store.compact(new LinkedHashMap<>());
+		store.awaitCompaction();
+		store.append(hash("B"), new byte[] { 2 });
+
+		/**
+		 * The next compaction fails as well, after adding the log to the rotated log.
+		 */
+		store.compact(new LinkedHashMap<>());
+		store.awaitCompaction();
+		store.append(hash("C"), new byte[] { 3 });
+		store.close();
+
+		assertTrue(new File(directory, "node-infos.snapshot.tmp").delete());
+		Map<String, byte[]> loaded = new NodeInfoStore(directory).load();
+		assertEquals(3, loaded.size());
+		assertArrayEquals(new byte[] { 1 }, loaded.get(hash("A")));
+		assertArrayEquals(new byte[] { 2 }, loaded.get(hash("B")));
+		assertArrayEquals(new byte[] { 3 }, loaded.get(hash("C")));
+	}
+
+	private String hash(String str) {
+		return SecureHash.sha256(str).toString();
+	}
+}
@@ -3,13 +3,21 @@ package com.patrick.corda.networkmap.core;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import com.patrick.corda.networkmap.core.NotaryManager;
 
@@ -24,6 +32,9 @@ import net.corda.core.node.NotaryInfo;
  */
 public class NotaryManagerTest {
 
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
 	@Test
 	public void testGetNotaryInfoList() {
 		List<NotaryInfo> notaryInfoList = NotaryManager.getInstance().getNotaryInfoList();
@@ -52,4 +63,46 @@ public class NotaryManagerTest {
 		}
 	}
 
+	@Test
+	public void testReloadPicksUpChanges() throws Exception {
+		File directory = temporaryFolder.newFolder("notaries");
+		File first = copyNotaryKeyStore("nodekeystore_notary_1.jks", directory);
+		File second = copyNotaryKeyStore("nodekeystore_notary_2.jks", directory);
+
+		NotaryManager notaryManager = new NotaryManager(directory);
+		List<NotaryInfo> notaryInfoList = notaryManager.getNotaryInfoList();
+		assertEquals(2, notaryInfoList.size());
+
+		/**
+		 * Unchanged key stores are not opened again.
+		 */
+		assertFalse(notaryManager.reload());
+		assertSame(notaryInfoList.get(0), notaryManager.getNotaryInfoList().get(0));
+		assertSame(notaryInfoList.get(1), notaryManager.getNotaryInfoList().get(1));
+
+		/**
+		 * The second key store is replaced by a copy of the first, whose notary is
+		 * taken from the cache.
+		 */
+		Files.copy(first.toPath(), second.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		assertTrue(notaryManager.reload());
+		assertEquals(2, notaryManager.getNotaryInfoList().size());
+		assertSame(notaryInfoList.get(0), notaryManager.getNotaryInfoList().get(1));
+
+		Files.delete(first.toPath());
+		assertTrue(notaryManager.reload());
+		assertEquals(1, notaryManager.getNotaryInfoList().size());
+		assertEquals(notaryInfoList.get(0), notaryManager.getNotaryInfoList().get(0));
+	}
+
+	private static File copyNotaryKeyStore(String name, File directory) throws IOException {
+		File file = new File(directory, name);
+
+		try (InputStream inputStream = NotaryManagerTest.class.getClassLoader()
+				.getResourceAsStream("notaries/" + name)) {
+			Files.copy(inputStream, file.toPath());
+		}
+
+		return file;
+	}
 }
@@ -0,0 +1,65 @@
+package com.patrick.corda.networkmap.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.junit.Test;
+
+/**
+ * 
+ * @author Patrick Pan
+ *
+ */
+public class SignedArtifactTest {
+
+	@Test
+	public void testNewCompressedInstance() throws IOException {
+		byte[] byteArray = new byte[4096];
+		Arrays.fill(byteArray, (byte) 7);
+
+		SignedArtifact signedArtifact = SignedArtifact.newCompressedInstance(byteArray);
+
+		assertArrayEquals(byteArray,
+				readFully(new GZIPInputStream(
+						new ByteArrayInputStream(signedArtifact.getEncodedByteArray(SignedArtifact.GZIP)))));
+		assertArrayEquals(byteArray, readFully(new InflaterInputStream(
+				new ByteArrayInputStream(signedArtifact.getEncodedByteArray(SignedArtifact.DEFLATE)))));
+
+		assertNotEquals(signedArtifact.getETag(), signedArtifact.getEncodedETag(SignedArtifact.GZIP));
+		assertNotEquals(signedArtifact.getEncodedETag(SignedArtifact.GZIP),
+				signedArtifact.getEncodedETag(SignedArtifact.DEFLATE));
+	}
+
+	@Test
+	public void testIncompressibleBytesHaveNoVariant() {
+		SignedArtifact signedArtifact = SignedArtifact.newCompressedInstance(new byte[] { 1 });
+
+		assertFalse(signedArtifact.getEncodings().iterator().hasNext());
+		assertNull(signedArtifact.getEncodedByteArray(SignedArtifact.GZIP));
+		assertEquals(1, signedArtifact.getByteArray().length);
+	}
+
+	private byte[] readFully(InputStream inputStream) throws IOException {
+		byte[] bytes = new byte[1024];
+		int hasRead = -1;
+
+		try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
+			while (0 < (hasRead = inputStream.read(bytes))) {
+				outputStream.write(bytes, 0, hasRead);
+			}
+
+			return outputStream.toByteArray();
+		}
+	}
+}
@@ -0,0 +1,140 @@
+package com.patrick.corda.networkmap.core;
+
+import static net.corda.core.crypto.Crypto.ECDSA_SECP256R1_SHA256;
+import static net.corda.core.crypto.Crypto.generateKeyPair;
+import static net.corda.nodeapi.internal.crypto.X509Utilities.createCertificate;
+
+import java.security.InvalidKeyException;
+import java.security.KeyPair;
+import java.security.SignatureException;
+import java.security.cert.CertPath;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.bouncycastle.asn1.x509.NameConstraints;
+
+import kotlin.Pair;
+import net.corda.core.crypto.Crypto;
+import net.corda.core.crypto.DigitalSignature;
+import net.corda.core.identity.CordaX500Name;
+import net.corda.core.identity.PartyAndCertificate;
+import net.corda.core.node.NodeInfo;
+import net.corda.core.serialization.SerializedBytes;
+import net.corda.core.utilities.NetworkHostAndPort;
+import net.corda.nodeapi.internal.SignedNodeInfo;
+import net.corda.nodeapi.internal.crypto.CertificateAndKeyPair;
+import net.corda.nodeapi.internal.crypto.CertificateType;
+import net.corda.nodeapi.internal.crypto.X509Utilities;
+
+/**
+ * Builds synthetic signed "NodeInfo" objects whose legal identities chain to
+ * "certificates/root.jks" in the same way a real node's certificates do: root
+ * => doorman => node CA => legal identity.
+ *
+ * @author Patrick Pan
+ *
+ */
+public class SignedNodeInfoTestUtils {
+
+	private static final int PLATFORM_VERSION = 3;
+
+	private static final CertificateAndKeyPair DOORMAN_CERTIFICATE_AND_KEY_PAIR;
+
+	static {
+		NetworkMapCertificateManager.getInstance().init();
+		SerializationEnvironmentManager.getInstance().init();
+		SerializationEnvironmentManager.getInstance().warmUp();
+
+		CertificateAndKeyPair root = NetworkMapCertificateManager.getInstance().getRootCertificateAndKeyPair();
+		DOORMAN_CERTIFICATE_AND_KEY_PAIR = createCertificateAndKeyPair(CertificateType.INTERMEDIATE_CA, root,
+				new CordaX500Name("Doorman", "London", "GB"));
+	}
+
+	private SignedNodeInfoTestUtils() {
+	}
+
+	public static KeyPair newKeyPair() {
+		return generateKeyPair(ECDSA_SECP256R1_SHA256);
+	}
+
+	public static SignedNodeInfo createSignedNodeInfo(CordaX500Name name)
+			throws InvalidKeyException, SignatureException {
+		return createSignedNodeInfo(name, newKeyPair(), 1L);
+	}
+
+	public static SignedNodeInfo createSignedNodeInfo(CordaX500Name name, KeyPair identityKeyPair, long serial)
+			throws InvalidKeyException, SignatureException {
+		CertificateAndKeyPair nodeCa = createCertificateAndKeyPair(CertificateType.NODE_CA,
+				DOORMAN_CERTIFICATE_AND_KEY_PAIR, name);
+		return sign(Collections.singletonList(
+				createPartyAndCertificate(CertificateType.LEGAL_IDENTITY, nodeCa, name, identityKeyPair)),
+				Collections.singletonList(identityKeyPair), serial);
+	}
+
+	/**
+	 * Builds the "NodeInfo" of a notary cluster member, which advertises its own
+	 * identity followed by the service identity shared by the whole cluster.
+	 *
+	 * @param name           the name of the member
+	 * @param serviceName    the name of the cluster
+	 * @param serviceKeyPair the key shared by the whole cluster
+	 * @return
+	 * @throws InvalidKeyException
+	 * @throws SignatureException
+	 */
+	public static SignedNodeInfo createNotaryClusterMemberSignedNodeInfo(CordaX500Name name,
+			CordaX500Name serviceName, KeyPair serviceKeyPair) throws InvalidKeyException, SignatureException {
+		KeyPair identityKeyPair = newKeyPair();
+		CertificateAndKeyPair nodeCa = createCertificateAndKeyPair(CertificateType.NODE_CA,
+				DOORMAN_CERTIFICATE_AND_KEY_PAIR, name);
+		return sign(
+				Arrays.asList(createPartyAndCertificate(CertificateType.LEGAL_IDENTITY, nodeCa, name, identityKeyPair),
+						createPartyAndCertificate(CertificateType.SERVICE_IDENTITY, nodeCa, serviceName,
+								serviceKeyPair)),
+				Arrays.asList(identityKeyPair, serviceKeyPair), 1L);
+	}
+
+	private static PartyAndCertificate createPartyAndCertificate(CertificateType certificateType,
+			CertificateAndKeyPair nodeCa, CordaX500Name name, KeyPair keyPair) {
+		X509Certificate identityCertificate = createCertificate(certificateType, nodeCa.getCertificate(),
+				nodeCa.getKeyPair(), name.getX500Principal(), keyPair.getPublic(), validityWindow(),
+				(NameConstraints) null);
+		CertPath certPath = X509Utilities.INSTANCE.buildCertPath(identityCertificate, nodeCa.getCertificate(),
+				DOORMAN_CERTIFICATE_AND_KEY_PAIR.getCertificate());
+		return new PartyAndCertificate(certPath);
+	}
+
+	/**
+	 * Every identity signs the "NodeInfo" in the order the identities are listed.
+	 */
+	private static SignedNodeInfo sign(List<PartyAndCertificate> partyAndCertificateList, List<KeyPair> keyPairs,
+			long serial) throws InvalidKeyException, SignatureException {
+		NodeInfo nodeInfo = new NodeInfo(Collections.singletonList(new NetworkHostAndPort("localhost", 10002)),
+				partyAndCertificateList, PLATFORM_VERSION, serial);
+
+		SerializedBytes<NodeInfo> raw = SerializationEnvironmentManager.getInstance().serializeObjectOnContext(nodeInfo);
+		List<DigitalSignature> signatures = new ArrayList<>();
+
+		for (KeyPair keyPair : keyPairs) {
+			signatures.add(new DigitalSignature(Crypto.doSign(keyPair.getPrivate(), raw.getBytes())));
+		}
+
+		return new SignedNodeInfo(raw, signatures);
+	}
+
+	private static CertificateAndKeyPair createCertificateAndKeyPair(CertificateType certificateType,
+			CertificateAndKeyPair issuer, CordaX500Name name) {
+		KeyPair keyPair = newKeyPair();
+		X509Certificate certificate = createCertificate(certificateType, issuer.getCertificate(), issuer.getKeyPair(),
+				name.getX500Principal(), keyPair.getPublic(), validityWindow(), (NameConstraints) null);
+		return new CertificateAndKeyPair(certificate, keyPair);
+	}
+
+	private static Pair<Duration, Duration> validityWindow() {
+		return new Pair<>(Duration.ofMillis(0), Duration.ofDays(3650));
+	}
+}
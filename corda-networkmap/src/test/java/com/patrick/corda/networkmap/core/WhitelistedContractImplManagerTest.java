@@ -1,14 +1,27 @@
 package com.patrick.corda.networkmap.core;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-
+import java.util.Properties;
+import java.util.Random;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import com.patrick.corda.networkmap.core.WhitelistedContractImplManager;
 
@@ -21,6 +34,9 @@ import net.corda.core.crypto.SecureHash;
  */
 public class WhitelistedContractImplManagerTest {
 
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
 	@Test
 	public void testGetWhitelistedContractImplementations() {
 		/**
@@ -77,4 +93,73 @@ public class WhitelistedContractImplManagerTest {
 		 */
 		assertTrue(jarHashB != jarHashD);
 	}
+
+	@Test
+	public void testGetJarHashStreamsLargeJar() throws Exception {
+		File jar = createJar(temporaryFolder.newFile("large.jar"), 1L);
+
+		assertTrue(jar.length() > WhitelistedContractImplManager.HASH_CHUNK_SIZE * 2);
+		assertEquals(SecureHash.sha256(Files.readAllBytes(jar.toPath())),
+				WhitelistedContractImplManager.getJarHash(jar));
+	}
+
+	@Test
+	public void testModifiedJarIsHashedAgain() throws Exception {
+		File jar = createJar(temporaryFolder.newFile("modified.jar"), 1L);
+		long lastModified = System.currentTimeMillis() - 60000;
+		assertTrue(jar.setLastModified(lastModified));
+
+		Properties scanCache = new Properties();
+		SecureHash jarHash = WhitelistedContractImplManager.getJarHash(jar, jar.length(), jar.lastModified(),
+				scanCache);
+		WhitelistedContractImplManager.putCachedJarHash(scanCache, jar, jar.length(), jar.lastModified(),
+				System.currentTimeMillis(), jarHash);
+
+		/**
+		 * Same size, different content and modification time.
+		 */
+		createJar(jar, 2L);
+		assertTrue(jar.setLastModified(lastModified + 1000));
+
+		SecureHash modifiedJarHash = WhitelistedContractImplManager.getJarHash(jar, jar.length(),
+				jar.lastModified(), scanCache);
+		assertNotEquals(jarHash, modifiedJarHash);
+		assertEquals(SecureHash.sha256(Files.readAllBytes(jar.toPath())), modifiedJarHash);
+	}
+
+	@Test
+	public void testRecentlyModifiedJarIsNotCached() throws Exception {
+		File jar = createJar(temporaryFolder.newFile("recent.jar"), 1L);
+		Properties scanCache = new Properties();
+
+		WhitelistedContractImplManager.putCachedJarHash(scanCache, jar, jar.length(), jar.lastModified(),
+				jar.lastModified() + 1, WhitelistedContractImplManager.getJarHash(jar));
+		assertTrue(scanCache.isEmpty());
+	}
+
+	/**
+	 * Writes a jar with one stored entry of random bytes, so every seed gives a jar
+	 * of the same size but different content.
+	 */
+	private static File createJar(File file, long seed) throws IOException {
+		byte[] content = new byte[WhitelistedContractImplManager.HASH_CHUNK_SIZE * 3 + 7];
+		new Random(seed).nextBytes(content);
+
+		CRC32 crc32 = new CRC32();
+		crc32.update(content);
+
+		JarEntry jarEntry = new JarEntry("random.bin");
+		jarEntry.setMethod(ZipEntry.STORED);
+		jarEntry.setSize(content.length);
+		jarEntry.setCrc(crc32.getValue());
+		jarEntry.setTime(0);
+
+		try (JarOutputStream jarOutputStream = new JarOutputStream(new FileOutputStream(file))) {
+			jarOutputStream.putNextEntry(jarEntry);
+			jarOutputStream.write(content);
+			jarOutputStream.closeEntry();
+		}
+
+		return file;
+	}
 }
@@ -0,0 +1,146 @@
+package com.patrick.corda.networkmap.web;
+
+import static com.patrick.corda.networkmap.web.NonBlockingRequestBodyReader.readBody;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+
+import org.junit.Test;
+
+/**
+ *
+ * @author Patrick Pan
+ *
+ */
+public class NonBlockingRequestBodyReaderTest {
+
+	private final byte[] body = new byte[40000];
+
+	public NonBlockingRequestBodyReaderTest() {
+		new Random(1).nextBytes(body);
+	}
+
+	@Test
+	public void testReadTricklingBodyWithContentLength() throws Throwable {
+		TricklingInputStream inputStream = new TricklingInputStream(body, 1000);
+		CompletableFuture<byte[]> future = readBody(inputStream, body.length, body.length);
+		inputStream.deliverAll();
+
+		assertArrayEquals(body, get(future));
+	}
+
+	@Test
+	public void testReadTricklingChunkedBody() throws Throwable {
+		TricklingInputStream inputStream = new TricklingInputStream(body, 999);
+		CompletableFuture<byte[]> future = readBody(inputStream, -1, body.length);
+		inputStream.deliverAll();
+
+		assertArrayEquals(body, get(future));
+
+		TricklingInputStream emptyInputStream = new TricklingInputStream(new byte[0], 1);
+		CompletableFuture<byte[]> emptyFuture = readBody(emptyInputStream, -1, body.length);
+		emptyInputStream.deliverAll();
+
+		assertArrayEquals(new byte[0], get(emptyFuture));
+	}
+
+	@Test(expected = RequestBodyTooLargeException.class)
+	public void testRejectDeclaredLengthOverLimit() throws Throwable {
+		get(readBody(new TricklingInputStream(body, 1000), body.length, body.length - 1));
+	}
+
+	@Test(expected = RequestBodyTooLargeException.class)
+	public void testRejectChunkedBodyOverLimit() throws Throwable {
+		TricklingInputStream inputStream = new TricklingInputStream(body, 1000);
+		CompletableFuture<byte[]> future = readBody(inputStream, -1, body.length - 1);
+		inputStream.deliverAll();
+
+		get(future);
+	}
+
+	@Test(expected = EOFException.class)
+	public void testRejectTruncatedBody() throws Throwable {
+		TricklingInputStream inputStream = new TricklingInputStream(body, 1000);
+		CompletableFuture<byte[]> future = readBody(inputStream, body.length + 1, body.length + 1);
+		inputStream.deliverAll();
+
+		get(future);
+	}
+
+	private static byte[] get(CompletableFuture<byte[]> future) throws Throwable {
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * Makes a few bytes available at a time, and tells the listener about them
+	 * the way a container does once the previous ones have been read.
+	 */
+	private static class TricklingInputStream extends ServletInputStream {
+
+		private final byte[] content;
+		private final int step;
+
+		private ReadListener readListener;
+		private int available;
+		private int position;
+
+		private TricklingInputStream(byte[] content, int step) {
+			this.content = content;
+			this.step = step;
+		}
+
+		private void deliverAll() throws IOException {
+			while (available < content.length) {
+				available = Math.min(content.length, available + step);
+				readListener.onDataAvailable();
+				assertFalse(isReady());
+			}
+
+			readListener.onAllDataRead();
+		}
+
+		@Override
+		public boolean isFinished() {
+			return position == content.length;
+		}
+
+		@Override
+		public boolean isReady() {
+			return position < available;
+		}
+
+		@Override
+		public void setReadListener(ReadListener readListener) {
+			this.readListener = readListener;
+		}
+
+		@Override
+		public int read() throws IOException {
+			return position < available ? content[position++] & 0xFF : -1;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (position == content.length) {
+				return -1;
+			}
+
+			int hasRead = Math.min(len, available - position);
+			System.arraycopy(content, position, b, off, hasRead);
+			position += hasRead;
+			return hasRead;
+		}
+	}
+}
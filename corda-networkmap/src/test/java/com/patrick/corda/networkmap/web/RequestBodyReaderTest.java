@@ -0,0 +1,50 @@
+package com.patrick.corda.networkmap.web;
+
+import static com.patrick.corda.networkmap.web.RequestBodyReader.readBody;
+import static org.junit.Assert.assertArrayEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * 
+ * @author Patrick Pan
+ *
+ */
+public class RequestBodyReaderTest {
+
+	private final byte[] body = new byte[40000];
+
+	public RequestBodyReaderTest() {
+		new Random(1).nextBytes(body);
+	}
+
+	@Test
+	public void testReadBodyWithContentLength() throws Exception {
+		assertArrayEquals(body, readBody(new ByteArrayInputStream(body), body.length, body.length));
+	}
+
+	@Test
+	public void testReadChunkedBody() throws Exception {
+		assertArrayEquals(body, readBody(new ByteArrayInputStream(body), -1, body.length));
+		assertArrayEquals(new byte[0], readBody(new ByteArrayInputStream(new byte[0]), -1, body.length));
+	}
+
+	@Test(expected = RequestBodyTooLargeException.class)
+	public void testRejectDeclaredLengthOverLimit() throws Exception {
+		readBody(new ByteArrayInputStream(body), body.length, body.length - 1);
+	}
+
+	@Test(expected = RequestBodyTooLargeException.class)
+	public void testRejectChunkedBodyOverLimit() throws Exception {
+		readBody(new ByteArrayInputStream(body), -1, body.length - 1);
+	}
+
+	@Test(expected = EOFException.class)
+	public void testRejectTruncatedBody() throws Exception {
+		readBody(new ByteArrayInputStream(body), body.length + 1, body.length + 1);
+	}
+}